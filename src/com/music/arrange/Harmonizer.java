@@ -4,114 +4,224 @@ import com.music.domain.Cadence;
 import com.music.transform.Transformer;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
 
+/**
+ * Voices a progression of semitone offsets as absolute SATB MIDI chords.
+ *
+ * Ties between equally good voicings are broken at random. An unseeded
+ * Harmonizer draws a fresh stream per call from the calling thread; a seeded
+ * one (or {@link #harmonizeAll}) is fully reproducible: the same input and
+ * seed always give the same output, whatever thread runs it.
+ */
 public class Harmonizer implements Transformer {
 
     private static final int BASS_MIN    = 40, BASS_MAX    = 60;
     private static final int TENOR_MIN   = 48, TENOR_MAX   = 67;
     private static final int ALTO_MIN    = 55, ALTO_MAX    = 74;
     private static final int SOPRANO_MIN = 60, SOPRANO_MAX = 81;
-    private static final Random RNG      = new Random();
+    private static final int    VOICES   = VoicingPathFinder.VOICES;
+
+    // voicings já filtrados por (máscara de classes, baixo), compartilhados
+    private static final VoicingTable TABLE = new VoicingTable();
+
+    // permutações das três vozes superiores (tenor, contralto, soprano)
+    private static final int[][] UPPER_PERMUTATIONS = {
+        {0, 1, 2}, {0, 2, 1}, {1, 0, 2}, {1, 2, 0}, {2, 0, 1}, {2, 1, 0}
+    };
+
+    private final boolean seeded;
+    private final long    seed;
+
+    /** Unseeded: ties vary from call to call. */
+    public Harmonizer() {
+        this.seeded = false;
+        this.seed   = 0L;
+    }
+
+    /** Seeded: every call with the same input returns the same voicing. */
+    public Harmonizer(long seed) {
+        this.seeded = true;
+        this.seed   = seed;
+    }
 
     @Override
     public Cadence transform(Cadence input) {
-        int[][] semisIn       = input.intervals();
-        int     totalChords   = semisIn.length;
-        int     fixedBassCount= totalChords;                // usa o length da cadência
-        int[][] midiGrid      = new int[totalChords][4];
-        int[]   prevMidi      = null;
+        SplittableRandom rng = seeded
+            ? new SplittableRandom(seed)
+            : new SplittableRandom(ThreadLocalRandom.current().nextLong());
+        return harmonize(input, rng);
+    }
 
-        for (int i = 0; i < totalChords; i++) {
-            // 1) dedupe & sort semitons do acorde
-            int[] tones = Arrays.stream(semisIn[i]).distinct().toArray();
-            Arrays.sort(tones);
-
-            // 2) gerar & embaralhar combinações SATB
-            List<int[]> combos = generateVoiceCombinations(tones);
-            Collections.shuffle(combos, RNG);
-
-            // 3) filtrar voicings válidos
-            List<int[]> valid = new ArrayList<>();
-            for (int[] combo : combos) {
-                if (combo.length != 4) continue;
-
-                // 4) fixa a raiz no baixo nos últimos fixedBassCount acordes
-                if (i >= totalChords - fixedBassCount && combo[0] != tones[0]) {
-                    continue;
-                }
+    /**
+     * Harmonizes a batch on {@code threads} workers. Each input gets its own
+     * stream split from {@code seed} in list order before any work starts,
+     * so the result is identical for every thread count.
+     */
+    public static List<Cadence> harmonizeAll(List<Cadence> inputs, long seed, int threads)
+            throws InterruptedException {
+        int                n       = inputs.size();
+        SplittableRandom   root    = new SplittableRandom(seed);
+        SplittableRandom[] streams = new SplittableRandom[n];
+        for (int i = 0; i < n; i++) streams[i] = root.split();
 
-                // 5) encaixa cada voz na sua tessitura
-                int b = fitToRange(combo[0], BASS_MIN,    BASS_MAX);
-                int t = fitToRange(combo[1], TENOR_MIN,   TENOR_MAX);
-                int a = fitToRange(combo[2], ALTO_MIN,    ALTO_MAX);
-                int s = fitToRange(combo[3], SOPRANO_MIN, SOPRANO_MAX);
-                int[] midi = { b + 60, t + 60, a + 60, s + 60 };
-
-                // 6) aplicar restrições musicais
-                if (!allUnique(midi))                      continue;
-                if (countInterval(midi, 12) > 1)           continue;
-                if (countInterval(midi, 7)  > 1)           continue;
-                if (!bassTenorWithinFifth(midi))           continue;
-                if (!noVoiceSpacingExceeds(midi, 12))      continue;
-                if (prevMidi != null && hasParallelFifth(prevMidi, midi)) {
-                    continue;
-                }
+        Harmonizer   h    = new Harmonizer();
+        Cadence[]    out  = new Cadence[n];
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.submit(() -> IntStream.range(0, n).parallel()
+                    .forEach(i -> out[i] = h.harmonize(inputs.get(i), streams[i])))
+                .get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Harmonization failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return Arrays.asList(out);
+    }
 
-                valid.add(new int[]{ b, t, a, s });
-            }
+    private Cadence harmonize(Cadence input, SplittableRandom rng) {
+        int[][] semisIn     = input.intervals();
+        int     totalChords = semisIn.length;
+        int[][] states      = new int[totalChords][];
 
-            // 7) escolhe voicing válido ou fallback
-            int[] chosenOffsets = valid.isEmpty()
-                ? dynamicFallback(tones, prevMidi)
-                : valid.get(RNG.nextInt(valid.size()));
+        for (int i = 0; i < totalChords; i++) {
+            // 1) chave do acorde: máscara de classes + nota do baixo
+            int key = chordKey(semisIn[i]);
 
-            // 8) converte offsets → MIDI e força espaçamento
-            int[] midi = new int[4];
-            for (int v = 0; v < 4; v++) {
-                midi[v] = chosenOffsets[v] + 60;
+            // 2) voicings SATB válidos (raiz fixa no baixo), ou fallback
+            if (key >= 0) {
+                int[] cached = TABLE.get(key);
+                states[i] = cached != null
+                    ? cached
+                    : TABLE.publish(key, candidateVoicings(canonicalTones(key)));
+            } else {
+                // notas abertas além da oitava ou baixo fora da tabela: sem cache
+                int[] tones = Arrays.stream(semisIn[i]).distinct().toArray();
+                Arrays.sort(tones);
+                states[i] = candidateVoicings(tones);
             }
-            enforceSpacingMidi(midi);
+        }
 
-            midiGrid[i] = midi;
-            prevMidi    = midi;
+        // 3) caminho de menor custo sobre toda a progressão (Viterbi)
+        int[]   path     = VoicingPathFinder.solve(states, rng);
+        int[][] midiGrid = new int[totalChords][];
+        for (int i = 0; i < totalChords; i++) {
+            int off = path[i] * VOICES;
+            midiGrid[i] = Arrays.copyOfRange(states[i], off, off + VOICES);
         }
 
         return new Cadence(input.type(), midiGrid, null, input.description());
     }
 
-    private List<int[]> generateVoiceCombinations(int[] tones) {
-        List<int[]> out = new ArrayList<>();
-        if (tones.length >= 4) {
-            out.addAll(permutations(Arrays.asList(
-                tones[0], tones[1], tones[2], tones[3]
-            )));
-        } else {
-            for (int t0 : tones) {
-                List<Integer> combo = new ArrayList<>();
-                for (int x : tones) combo.add(x);
-                combo.add(t0 + 12);
-                out.addAll(permutations(combo));
+    /**
+     * Table key for the lowest (up to four) distinct tones of {@code chord},
+     * which are all the voicing uses, found without allocating. -1 when the
+     * chord is empty, its bass is outside the table, or a tone lies an
+     * octave or more above the bass: mask and bass could not give those
+     * tones back in their register.
+     */
+    private static int chordKey(int[] chord) {
+        int  mask = 0, bass = 0, used = 0;
+        long last = Long.MIN_VALUE;
+        while (used < VOICES) {
+            boolean found = false;
+            int     next  = 0;
+            for (int x : chord) {
+                if (x > last && (!found || x < next)) {
+                    next  = x;
+                    found = true;
+                }
+            }
+            if (!found) break;
+
+            if (used == 0) {
+                if (next < VoicingTable.BASS_MIN || next > VoicingTable.BASS_MAX) return -1;
+                bass = next;
+            } else if (next >= bass + 12) {
+                return -1;
             }
+            mask |= 1 << Math.floorMod(next, 12);
+            last  = next;
+            used++;
         }
-        return out;
+        return used == 0 ? -1 : VoicingTable.key(mask, bass);
     }
 
-    private List<int[]> permutations(List<Integer> list) {
-        List<int[]> acc = new ArrayList<>();
-        permuteHelper(list, 0, acc);
-        return acc;
+    /**
+     * Rebuilds sorted tones from a table key: the bass, then the remaining
+     * classes ascending within the octave above it. For a chord that got
+     * this key these are exactly its lowest distinct tones.
+     */
+    private static int[] canonicalTones(int key) {
+        int   mask   = VoicingTable.maskOf(key);
+        int   bass   = VoicingTable.bassOf(key);
+        int[] tones  = new int[Integer.bitCount(mask)];
+        int   n      = 0;
+        for (int rel = 0; rel < 12; rel++) {
+            if ((mask & (1 << Math.floorMod(bass + rel, 12))) != 0) tones[n++] = bass + rel;
+        }
+        return tones;
     }
 
-    private void permuteHelper(List<Integer> list, int idx, List<int[]> acc) {
-        if (idx == list.size()) {
-            acc.add(list.stream().mapToInt(x -> x).toArray());
-            return;
+    /**
+     * Packs every distinct SATB voicing of {@code tones} that keeps the root
+     * in the bass and passes the static rules (4 MIDI pitches per voicing).
+     * Falls back to {@link #fallbackVoicings} when nothing survives.
+     */
+    private int[] candidateVoicings(int[] tones) {
+        int[] out   = new int[0];
+        int   count = 0;
+
+        if (tones.length >= 3) {
+            // pool: 4 primeiras notas, ou tríade + uma nota dobrada na oitava
+            int pools = tones.length >= 4 ? 1 : tones.length;
+            int[] upper = new int[3];
+            int[] midi  = new int[VOICES];
+            for (int d = 0; d < pools; d++) {
+                upper[0] = tones[1];
+                upper[1] = tones[2];
+                upper[2] = tones.length >= 4 ? tones[3] : tones[d] + 12;
+
+                for (int[] perm : UPPER_PERMUTATIONS) {
+                    midi[0] = fitToRange(tones[0],        BASS_MIN,    BASS_MAX)    + 60;
+                    midi[1] = fitToRange(upper[perm[0]], TENOR_MIN,   TENOR_MAX)   + 60;
+                    midi[2] = fitToRange(upper[perm[1]], ALTO_MIN,    ALTO_MAX)    + 60;
+                    midi[3] = fitToRange(upper[perm[2]], SOPRANO_MIN, SOPRANO_MAX) + 60;
+
+                    if (!passesStaticRules(midi) || contains(out, count, midi)) continue;
+                    if (out.length < (count + 1) * VOICES) {
+                        out = Arrays.copyOf(out, Math.max(8, out.length * 2));
+                    }
+                    System.arraycopy(midi, 0, out, count * VOICES, VOICES);
+                    count++;
+                }
+            }
         }
-        for (int j = idx; j < list.size(); j++) {
-            Collections.swap(list, idx, j);
-            permuteHelper(list, idx + 1, acc);
-            Collections.swap(list, idx, j);
+
+        return count == 0 ? fallbackVoicings(tones) : Arrays.copyOf(out, count * VOICES);
+    }
+
+    private static boolean contains(int[] packed, int count, int[] midi) {
+        for (int c = 0; c < count; c++) {
+            int o = c * VOICES;
+            if (packed[o] == midi[0] && packed[o + 1] == midi[1]
+             && packed[o + 2] == midi[2] && packed[o + 3] == midi[3]) {
+                return true;
+            }
         }
+        return false;
+    }
+
+    private boolean passesStaticRules(int[] midi) {
+        return allUnique(midi)
+            && countInterval(midi, 12) <= 1
+            && countInterval(midi, 7)  <= 1
+            && bassTenorWithinFifth(midi)
+            && noVoiceSpacingExceeds(midi, 12);
     }
 
     private int fitToRange(int offset, int min, int max) {
@@ -122,8 +232,11 @@ public class Harmonizer implements Transformer {
     }
 
     private boolean allUnique(int[] p) {
-        Set<Integer> seen = new HashSet<>();
-        for (int x : p) if (!seen.add(x)) return false;
+        for (int i = 0; i < p.length; i++) {
+            for (int j = i + 1; j < p.length; j++) {
+                if (p[i] == p[j]) return false;
+            }
+        }
         return true;
     }
 
@@ -148,18 +261,12 @@ public class Harmonizer implements Transformer {
         return true;
     }
 
-    private boolean hasParallelFifth(int[] prev, int[] curr) {
-        for (int v = 1; v < 4; v++) {
-            int d1 = prev[v] - prev[0], d2 = curr[v] - curr[0];
-            if (Math.abs(d1) == 7 && Math.abs(d2) == 7
-             && (curr[0] - prev[0]) * (curr[v] - prev[v]) > 0) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private int[] dynamicFallback(int[] tones, int[] prev) {
+    /**
+     * Root–3rd–5th voicings with one doubled tone, used when no permutation
+     * survives the rules. Parallels against the previous chord are left to
+     * the path search, which penalizes them.
+     */
+    private int[] fallbackVoicings(int[] tones) {
         int r = tones[0];
         int t = tones.length > 1 ? tones[1] : r + 4;
         int f = tones.length > 2 ? tones[2] : r + 7;
@@ -169,30 +276,31 @@ public class Harmonizer implements Transformer {
             {r, t, f, t + 12},
             {r, t, f, f + 12}
         };
+        int[] out   = new int[cands.length * VOICES];
+        int   count = 0;
         for (int[] c : cands) {
-            int b  = fitToRange(c[0], BASS_MIN,    BASS_MAX);
-            int tn = fitToRange(c[1], TENOR_MIN,   TENOR_MAX);
-            int al = fitToRange(c[2], ALTO_MIN,    ALTO_MAX);
-            int sp = fitToRange(c[3], SOPRANO_MIN, SOPRANO_MAX);
-            int[] midi = {b + 60, tn + 60, al + 60, sp + 60};
-
-            if (allUnique(midi)
-             && countInterval(midi, 12) <= 1
-             && countInterval(midi, 7)  <= 1
-             && bassTenorWithinFifth(midi)
-             && noVoiceSpacingExceeds(midi, 12)
-             && (prev == null || !hasParallelFifth(prev, midi))) {
-                return new int[]{b, tn, al, sp};
+            int[] midi = {
+                fitToRange(c[0], BASS_MIN,    BASS_MAX)    + 60,
+                fitToRange(c[1], TENOR_MIN,   TENOR_MAX)   + 60,
+                fitToRange(c[2], ALTO_MIN,    ALTO_MAX)    + 60,
+                fitToRange(c[3], SOPRANO_MIN, SOPRANO_MAX) + 60
+            };
+            if (passesStaticRules(midi) && !contains(out, count, midi)) {
+                System.arraycopy(midi, 0, out, count * VOICES, VOICES);
+                count++;
             }
         }
+        if (count > 0) return Arrays.copyOf(out, count * VOICES);
 
-        // final fallback: root–3rd–5th–root+12
-        return new int[]{
-            fitToRange(tones[0],         BASS_MIN,    BASS_MAX),
-            fitToRange(tones.length>1 ? tones[1] : tones[0]+4, TENOR_MIN,   TENOR_MAX),
-            fitToRange(tones.length>2 ? tones[2] : tones[0]+7, ALTO_MIN,    ALTO_MAX),
-            fitToRange(tones[0] + 12,    SOPRANO_MIN, SOPRANO_MAX)
+        // final fallback: root–3rd–5th–root+12, com espaçamento forçado
+        int[] midi = {
+            fitToRange(r,      BASS_MIN,    BASS_MAX)    + 60,
+            fitToRange(t,      TENOR_MIN,   TENOR_MAX)   + 60,
+            fitToRange(f,      ALTO_MIN,    ALTO_MAX)    + 60,
+            fitToRange(r + 12, SOPRANO_MIN, SOPRANO_MAX) + 60
         };
+        enforceSpacingMidi(midi);
+        return midi;
     }
 
     /**
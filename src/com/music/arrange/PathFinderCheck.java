@@ -0,0 +1,72 @@
+package com.music.arrange;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Checks that {@link VoicingPathFinder} returns a lowest-cost path.
+ *
+ * The search it replaced broke ties by shuffling, so its exact output can't
+ * be reproduced; what must hold is optimality. Seeded random progressions
+ * of packed SATB candidates (small enough to enumerate every path) are
+ * solved and the chosen path's cost is compared with the exhaustive
+ * minimum. Parallel fifths are planted often so the large penalty takes
+ * part. Exits with status 1 on any difference.
+ */
+final class PathFinderCheck {
+
+    private static final int CASES = 20_000;
+
+    private PathFinderCheck() {}
+
+    public static void main(String[] args) {
+        SplittableRandom rng = new SplittableRandom(args.length > 0 ? Long.parseLong(args[0]) : 1L);
+        int differ = 0;
+        for (int c = 0; c < CASES; c++) {
+            int[][] states = new int[1 + rng.nextInt(6)][];
+            for (int i = 0; i < states.length; i++) {
+                int m = 1 + rng.nextInt(5);
+                states[i] = new int[m * VoicingPathFinder.VOICES];
+                for (int s = 0; s < m; s++) {
+                    int o    = s * VoicingPathFinder.VOICES;
+                    int bass = 40 + rng.nextInt(12);
+                    states[i][o]     = bass;
+                    states[i][o + 1] = rng.nextInt(3) == 0 ? bass + 7 : bass + 3 + rng.nextInt(9);
+                    states[i][o + 2] = states[i][o + 1] + 1 + rng.nextInt(8);
+                    states[i][o + 3] = states[i][o + 2] + 1 + rng.nextInt(8);
+                }
+            }
+            int[] path = VoicingPathFinder.solve(states, rng.split());
+            long  got  = cost(states, path);
+            long  want = minimum(states, new int[states.length], 0);
+            if (got != want) {
+                if (differ++ < 20) {
+                    System.out.println("MISMATCH case " + c + ": cost " + got + ", minimum " + want
+                        + "\n  states " + Arrays.deepToString(states)
+                        + "\n  path   " + Arrays.toString(path));
+                }
+            }
+        }
+        System.out.printf("path-finder      %6d compared, %d differ%n", CASES, differ);
+        System.exit(differ == 0 ? 0 : 1);
+    }
+
+    private static long minimum(int[][] states, int[] path, int i) {
+        if (i == states.length) return cost(states, path);
+        long best = Long.MAX_VALUE;
+        for (int s = 0, m = states[i].length / VoicingPathFinder.VOICES; s < m; s++) {
+            path[i] = s;
+            best = Math.min(best, minimum(states, path, i + 1));
+        }
+        return best;
+    }
+
+    private static long cost(int[][] states, int[] path) {
+        long total = 0;
+        for (int i = 1; i < states.length; i++) {
+            total += VoicingPathFinder.transitionCost(states[i - 1], path[i - 1] * VoicingPathFinder.VOICES,
+                                                      states[i],     path[i]     * VoicingPathFinder.VOICES);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,158 @@
+package com.music.arrange;
+
+import java.util.SplittableRandom;
+
+/**
+ * Viterbi search over per-chord SATB voicing candidates.
+ *
+ * Each chord contributes a packed state array (4 absolute MIDI pitches per
+ * voicing, bass → soprano). The finder returns, for every chord, the index of
+ * the candidate lying on the lowest-cost path across the whole progression.
+ *
+ * Transition cost:
+ *  - total voice movement (sum of |Δ| per voice)
+ *  - a penalty per voice leaping more than a perfect fifth
+ *  - a prohibitive penalty for parallel fifths against the bass; it is kept
+ *    finite so a path always exists even when every transition has one
+ *
+ * Equal-cost alternatives are broken at random so repeated runs still vary.
+ */
+final class VoicingPathFinder {
+
+    static final int VOICES = 4;
+
+    private static final int LEAP_LIMIT             = 7;
+    private static final int LEAP_PENALTY           = 4;
+    private static final int PARALLEL_FIFTH_PENALTY = 1000;
+
+    private VoicingPathFinder() {}
+
+    /**
+     * @param states per-chord packed voicings (length = 4 × candidates, never empty)
+     * @param rng    source for tie-breaking between equal-cost paths
+     * @return       chosen candidate index per chord
+     */
+    static int[] solve(int[][] states, SplittableRandom rng) {
+        int   n    = states.length;
+        int[] path = new int[n];
+        if (n == 0) return path;
+
+        // buffers dimensionados uma vez por progressão, não por acorde
+        int   maxM  = 0, maxPM = 0;
+        int[] backOff = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            int m = states[i].length / VOICES;
+            maxM = Math.max(maxM, m);
+            if (i > 0) maxPM = Math.max(maxPM, m * (states[i - 1].length / VOICES));
+            backOff[i + 1] = backOff[i] + m;
+        }
+        int[]  back  = new int[backOff[n]];
+        long[] acc   = new long[maxM];                          // custo acumulado (0 no 1º acorde)
+        long[] next  = new long[maxM];
+        int[]  order = new int[maxM];
+        int[]  table = new int[maxPM];
+
+        for (int i = 1; i < n; i++) {
+            int[] prev = states[i - 1];
+            int[] curr = states[i];
+            int   p    = prev.length / VOICES;
+            int   m    = curr.length / VOICES;
+            int   bo   = backOff[i];
+
+            // tabela de custos da transição i-1 → i
+            fillTransitionTable(prev, p, curr, m, table);
+
+            // predecessores em ordem crescente de custo acumulado
+            sortByCost(acc, p, order);
+
+            for (int s = 0; s < m; s++) {
+                long best  = Long.MAX_VALUE;
+                int  bestK = 0, ties = 0;
+                for (int o = 0; o < p; o++) {
+                    int  k    = order[o];
+                    long base = acc[k];
+                    // custos de transição são ≥ 0: os demais estados são dominados
+                    if (base > best) break;
+                    long c = base + table[k * m + s];
+                    if (c < best) {
+                        best  = c;
+                        bestK = k;
+                        ties  = 1;
+                    } else if (c == best && rng.nextInt(++ties) == 0) {
+                        bestK = k;
+                    }
+                }
+                next[s]      = best;
+                back[bo + s] = bestK;
+            }
+            long[] swap = acc;
+            acc  = next;
+            next = swap;
+        }
+
+        // melhor estado final, depois percorre os ponteiros de volta
+        long best  = Long.MAX_VALUE;
+        int  bestS = 0, ties = 0;
+        for (int s = 0, m = states[n - 1].length / VOICES; s < m; s++) {
+            if (acc[s] < best) {
+                best  = acc[s];
+                bestS = s;
+                ties  = 1;
+            } else if (acc[s] == best && rng.nextInt(++ties) == 0) {
+                bestS = s;
+            }
+        }
+        path[n - 1] = bestS;
+        for (int i = n - 1; i > 0; i--) {
+            path[i - 1] = back[backOff[i] + path[i]];
+        }
+        return path;
+    }
+
+    /**
+     * Cost of moving from voicing {@code a} (at offset ai) to voicing
+     * {@code b} (at offset bi).
+     */
+    static int transitionCost(int[] a, int ai, int[] b, int bi) {
+        int cost = 0;
+        for (int v = 0; v < VOICES; v++) {
+            int d = Math.abs(b[bi + v] - a[ai + v]);
+            cost += d;
+            if (d > LEAP_LIMIT) cost += LEAP_PENALTY;
+        }
+        int bassMove = b[bi] - a[ai];
+        for (int v = 1; v < VOICES; v++) {
+            int d1 = a[ai + v] - a[ai], d2 = b[bi + v] - b[bi];
+            if (Math.abs(d1) == 7 && Math.abs(d2) == 7
+             && bassMove * (b[bi + v] - a[ai + v]) > 0) {
+                cost += PARALLEL_FIFTH_PENALTY;
+                break;
+            }
+        }
+        return cost;
+    }
+
+    private static void fillTransitionTable(int[] prev, int p, int[] curr, int m, int[] table) {
+        for (int k = 0; k < p; k++) {
+            int row = k * m;
+            for (int s = 0; s < m; s++) {
+                table[row + s] = transitionCost(prev, k * VOICES, curr, s * VOICES);
+            }
+        }
+    }
+
+    /**
+     * Insertion sort of indices 0..p-1 by ascending cost; candidate lists are
+     * a few dozen entries at most.
+     */
+    private static void sortByCost(long[] cost, int p, int[] order) {
+        for (int i = 0; i < p; i++) {
+            int idx = i, j = i - 1;
+            while (j >= 0 && cost[order[j]] > cost[idx]) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = idx;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.music.arrange;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lazily filled, thread-safe table of pre-filtered SATB voicings.
+ *
+ * Entries are keyed by a chord's 12-bit pitch-class mask plus its bass tone
+ * (the absolute offset, so the register is kept), and hold the range-fitted
+ * voicings packed 4 MIDI pitches per voicing. Only close-position chords are
+ * stored: every other tone lies within the octave above the bass, so mask
+ * and bass give back the exact tones. Slots are indexed directly (no
+ * hashing, no boxing), so a lookup on a warm table allocates nothing.
+ * Stored arrays are shared and must be treated as read-only.
+ */
+final class VoicingTable {
+
+    /** Bass offsets the table covers; chords outside are voiced uncached. */
+    static final int BASS_MIN = -24, BASS_MAX = 35;
+
+    private static final int MASK_BITS = 12;
+    private static final int SIZE      = (BASS_MAX - BASS_MIN + 1) << MASK_BITS;
+
+    private final AtomicReferenceArray<int[]> slots = new AtomicReferenceArray<>(SIZE);
+
+    /**
+     * @param mask pitch classes present in the chord (bit pc set)
+     * @param bass bass tone offset, {@link #BASS_MIN}..{@link #BASS_MAX}
+     */
+    static int key(int mask, int bass) {
+        return ((bass - BASS_MIN) << MASK_BITS) | (mask & 0xFFF);
+    }
+
+    static int maskOf(int key)   { return key & 0xFFF; }
+    static int bassOf(int key)   { return (key >>> MASK_BITS) + BASS_MIN; }
+
+    /** Packed voicings for {@code key}, or null if not computed yet. */
+    int[] get(int key) {
+        return slots.get(key);
+    }
+
+    /**
+     * Publishes {@code voicings} for {@code key} unless another thread got
+     * there first; either way returns the instance every caller will share.
+     */
+    int[] publish(int key, int[] voicings) {
+        if (slots.compareAndSet(key, null, voicings)) return voicings;
+        return slots.get(key);
+    }
+}
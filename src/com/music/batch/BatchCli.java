@@ -0,0 +1,218 @@
+package com.music.batch;
+
+import com.music.domain.Cadence;
+import com.music.registry.CadenceRegistry;
+import com.music.service.CadencePipeline;
+import com.music.service.MxlWriter;
+import com.music.service.ScoreRenderer;
+import com.music.service.SmfWriter;
+import com.music.service.SynthPool;
+import com.music.service.WavRenderer;
+import com.music.transform.TransformCache;
+
+import javax.sound.midi.MidiUnavailableException;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless entry point: runs {@link JobSpec} lines through the same pipeline
+ * as MainApp's Apply button (tonic shift, chain, post-processors,
+ * harmonization) and writes MusicXML, compressed .mxl, MIDI and/or WAV files.
+ * Touches no Swing, AWT or sound device, so it starts in well under a second
+ * on a display-less machine.
+ *
+ * Usage: BatchCli [-o dir] [-a archive.mxl] [-j threads] [--seed n] [spec-file … | -]
+ *
+ * Specs come from the given files, or stdin when there are none (or "-").
+ * Blank lines and lines starting with '#' are skipped. Jobs run on a fixed
+ * pool fed through a bounded queue, so arbitrarily long inputs are streamed
+ * rather than read up front. One line per job goes to stdout
+ * ("ok name ms"); errors go to stderr and make the exit status 1.
+ *
+ * With -a, every job's MusicXML is compressed into one .mxl archive as it is
+ * rendered, instead of a .musicxml file per job.
+ */
+public class BatchCli {
+
+    private final Path            outDir;
+    private final MxlWriter       archive;
+    private final CadencePipeline pipeline = new CadencePipeline(new TransformCache(4096, 1 << 22));
+
+    // one reusable MIDI encoder per worker
+    private final ThreadLocal<SmfWriter> smf = ThreadLocal.withInitial(SmfWriter::new);
+
+    private WavRenderer wav;       // loads the soundbank, so only once a job asks for wav
+    private int         workers = 1;
+
+    private int jobs;   // numbered in input order by the reading thread
+
+    private final AtomicInteger done   = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    public BatchCli(Path outDir) {
+        this(outDir, null);
+    }
+
+    /**
+     * @param archive receives the MusicXML of every job, or null for one file per job
+     */
+    public BatchCli(Path outDir, MxlWriter archive) {
+        this.outDir  = outDir;
+        this.archive = archive;
+    }
+
+    /**
+     * Renders one job and writes its files.
+     */
+    public void run(JobSpec spec) throws IOException, MidiUnavailableException {
+        Cadence c       = pipeline.transform(CadenceRegistry.getCadence(spec.cadence), spec.tonic,
+                                             spec.chain, spec.voiceLeading, spec.dodecafonize);
+        Cadence midiCad = pipeline.harmonize(c, spec.seed);
+
+        if (spec.musicXml && archive != null) {
+            archive.add(spec.name, midiCad, spec.tempo, spec.meter);
+        } else if (spec.musicXml) {
+            try (OutputStream os = Files.newOutputStream(outDir.resolve(spec.name + ".musicxml"))) {
+                ScoreRenderer.writeMusicXMLFromMidi(midiCad, spec.tempo, spec.meter, os);
+            }
+        }
+        if (spec.mxl) {
+            try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(outDir.resolve(spec.name + ".mxl")))) {
+                MxlWriter.write(midiCad, spec.tempo, spec.meter, os);
+            }
+        }
+        if (spec.midi) {
+            try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(outDir.resolve(spec.name + ".mid")))) {
+                smf.get().write(midiCad, spec.tempo, spec.bank, spec.program, os);
+            }
+        }
+        if (spec.wav) {
+            wavRenderer().render(midiCad, spec.tempo, spec.bank, spec.program, outDir.resolve(spec.name + ".wav"));
+        }
+    }
+
+    /**
+     * Parses and runs every spec from {@code in} on {@code threads} workers;
+     * returns once all of them have finished.
+     */
+    public void runAll(BufferedReader in, String source, int threads, long baseSeed)
+            throws IOException, InterruptedException {
+        synchronized (this) {
+            workers = Math.max(workers, threads);
+        }
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+            threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(threads * 4),
+            new ThreadPoolExecutor.CallerRunsPolicy());   // reader slows down instead of queueing everything
+        try {
+            String line;
+            int    lineNo = 0;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) continue;
+
+                String where = source + ":" + lineNo;
+                JobSpec spec;
+                try {
+                    spec = JobSpec.parse(trimmed, ++jobs, baseSeed);
+                } catch (IllegalArgumentException e) {
+                    fail(where, e);
+                    continue;
+                }
+                pool.execute(() -> {
+                    long t0 = System.nanoTime();
+                    try {
+                        run(spec);
+                        done.incrementAndGet();
+                        System.out.println("ok\t" + spec.name + "\t" + (System.nanoTime() - t0) / 1_000_000);
+                    } catch (IOException | MidiUnavailableException | RuntimeException e) {
+                        fail(where, e);
+                    }
+                });
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private synchronized WavRenderer wavRenderer() throws MidiUnavailableException {
+        // one offline synthesizer per worker, so renders never wait for each other
+        if (wav == null) wav = new WavRenderer(SynthPool.offline(workers, WavRenderer.bundledSoundbank()));
+        return wav;
+    }
+
+    private void fail(String where, Exception e) {
+        failed.incrementAndGet();
+        System.err.println("error\t" + where + "\t" + (e.getMessage() != null ? e.getMessage() : e.toString()));
+    }
+
+    public int completed() { return done.get();   }
+    public int failures()  { return failed.get(); }
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        long start = System.nanoTime();
+
+        Path         outDir  = Paths.get(".");
+        Path         archive = null;
+        int          threads = Runtime.getRuntime().availableProcessors();
+        long         seed    = 0;
+        List<String> inputs  = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-o":     outDir  = Paths.get(argument(args, ++i));               break;
+                case "-a":     archive = Paths.get(argument(args, ++i));               break;
+                case "-j":     threads = Integer.parseInt(argument(args, ++i));        break;
+                case "--seed": seed    = Long.parseLong(argument(args, ++i));          break;
+                case "-h": case "--help":
+                    System.err.println("Usage: BatchCli [-o dir] [-a archive.mxl] [-j threads] [--seed n] [spec-file ... | -]");
+                    return;
+                default:       inputs.add(args[i]);
+            }
+        }
+        if (threads < 1) throw new IllegalArgumentException("-j must be >= 1");
+        if (inputs.isEmpty()) inputs.add("-");
+        Files.createDirectories(outDir);
+
+        MxlWriter mxl = archive == null ? null
+                      : new MxlWriter(new BufferedOutputStream(Files.newOutputStream(archive), 1 << 16));
+        BatchCli  cli = new BatchCli(outDir, mxl);
+        try {
+            for (String input : inputs) {
+                boolean stdin = input.equals("-");
+                try (BufferedReader r = stdin
+                        ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                        : Files.newBufferedReader(Paths.get(input), StandardCharsets.UTF_8)) {
+                    cli.runAll(r, stdin ? "stdin" : input, threads, seed);
+                }
+            }
+        } finally {
+            if (mxl != null) mxl.close();
+        }
+
+        double secs = (System.nanoTime() - start) / 1e9;
+        System.err.printf("%d jobs, %d failed in %.2f s (%.0f jobs/min)%n",
+            cli.completed(), cli.failures(), secs, cli.completed() * 60 / secs);
+        if (cli.failures() > 0) System.exit(1);
+    }
+
+    private static String argument(String[] args, int i) {
+        if (i >= args.length) throw new IllegalArgumentException(args[i - 1] + " needs a value");
+        return args[i];
+    }
+}
@@ -0,0 +1,268 @@
+package com.music.batch;
+
+import com.music.domain.Cadence;
+import com.music.registry.CadenceRegistry;
+import com.music.registry.TransformerRegistry;
+import com.music.transform.TransformCache;
+import com.music.transform.Transformer;
+import com.music.transform.impl.DodecafonizeTransformer;
+import com.music.transform.impl.TransposeToTonicTransformer;
+import com.music.transform.impl.VoiceLeadingOptimizerTransformer;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exhaustive offline exploration of the transformer space: every cadence in
+ * {@link CadenceRegistry} × every tonic × every T1 → T2 → T3 chain over
+ * {@link TransformerRegistry}, each with the four post-processing options
+ * (none, voice leading, dodecafonize, both — in the UI's order).
+ *
+ * Work is split into one task per (cadence, tonic, T1) and run on a fork/join
+ * pool. Inside a task the shared prefixes (semis, c1, c2, c3) are computed
+ * once, so each chain already costs one stage pass; stages therefore run
+ * one at a time rather than through {@link com.music.transform.ChainCompiler},
+ * whose fused T2 → T3 pairs would redo the shared c2. Output grids are deduplicated by a 64-bit content hash and each
+ * distinct grid is written once; tasks buffer their lines and hand them to
+ * the writer in one block.
+ *
+ * Output (tab-separated, one record per line):
+ *   G  hash  grid                                   first occurrence of a grid
+ *   R  cadence  tonic  T1  T2  T3  post  hash       one per explored chain
+ *   E  cadence  tonic  T1  T2  T3  post  message    chain threw
+ * Grids are written as rows joined by ';', pitches by ','.
+ */
+public class ChainExplorer {
+
+    public static final String[] POST_PROCESSING = {
+        "none", "voice-leading", "dodecafonize", "voice-leading+dodecafonize"
+    };
+
+    private final int threads;
+
+    public ChainExplorer(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("threads must be >= 1");
+        this.threads = threads;
+    }
+
+    /**
+     * Runs the whole space, streaming records to {@code out}.
+     */
+    public Report explore(Writer out) throws IOException, InterruptedException {
+        List<String>  cadences = CadenceRegistry.getAvailableCadences();
+        List<String>  tonics   = CadenceRegistry.getAvailableTonics();
+        List<String>  names    = TransformerRegistry.getAvailableTransformers();
+        Transformer[] stages   = new Transformer[names.size()];
+        for (int i = 0; i < stages.length; i++) stages[i] = TransformerRegistry.getTransformer(names.get(i));
+
+        int tCount = stages.length;
+        int tasks  = cadences.size() * tonics.size() * tCount;
+
+        ConcurrentLongSet seen     = new ConcurrentLongSet();
+        LongAdder         chains   = new LongAdder();
+        LongAdder         failures = new LongAdder();
+        long              start    = System.nanoTime();
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.submit(() -> IntStream.range(0, tasks).parallel().forEach(task -> {
+                String cadence = cadences.get(task / (tonics.size() * tCount));
+                String tonic   = tonics.get(task / tCount % tonics.size());
+                int    t1      = task % tCount;
+
+                StringBuilder buf = new StringBuilder(1 << 16);
+                Task t = new Task(cadence, tonic, names, stages, seen, buf);
+                t.run(t1);
+                chains.add(t.chains);
+                failures.add(t.failures);
+                try {
+                    synchronized (out) { out.append(buf); }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            })).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) throw ((UncheckedIOException) cause).getCause();
+            throw new IllegalStateException("Exploration failed", cause);
+        } finally {
+            pool.shutdown();
+        }
+        out.flush();
+
+        return new Report(chains.sum(), seen.size(), failures.sum(), System.nanoTime() - start);
+    }
+
+    /**
+     * All T2 × T3 × post-processing chains below one (cadence, tonic, T1).
+     */
+    private static final class Task {
+        private final String        cadence, tonic;
+        private final List<String>  names;
+        private final Transformer[] stages;
+        private final ConcurrentLongSet seen;
+        private final StringBuilder buf;
+        private final VoiceLeadingOptimizerTransformer voiceLeading = new VoiceLeadingOptimizerTransformer();
+        private final DodecafonizeTransformer          dodecafonize = new DodecafonizeTransformer();
+        long chains, failures;
+
+        Task(String cadence, String tonic, List<String> names, Transformer[] stages,
+             ConcurrentLongSet seen, StringBuilder buf) {
+            this.cadence = cadence;
+            this.tonic   = tonic;
+            this.names   = names;
+            this.stages  = stages;
+            this.seen    = seen;
+            this.buf     = buf;
+        }
+
+        void run(int t1) {
+            int perT1 = stages.length * stages.length * POST_PROCESSING.length;
+            Cadence c1;
+            try {
+                Cadence semis = new TransposeToTonicTransformer(tonic)
+                    .transform(CadenceRegistry.getCadence(cadence));
+                c1 = stages[t1].transform(semis);
+            } catch (RuntimeException e) {
+                failAll(t1, -1, -1, perT1, e);
+                return;
+            }
+            for (int t2 = 0; t2 < stages.length; t2++) {
+                Cadence c2;
+                try {
+                    c2 = stages[t2].transform(c1);
+                } catch (RuntimeException e) {
+                    failAll(t1, t2, -1, stages.length * POST_PROCESSING.length, e);
+                    continue;
+                }
+                for (int t3 = 0; t3 < stages.length; t3++) {
+                    Cadence c3;
+                    try {
+                        c3 = stages[t3].transform(c2);
+                    } catch (RuntimeException e) {
+                        failAll(t1, t2, t3, POST_PROCESSING.length, e);
+                        continue;
+                    }
+                    Cadence vl = null;
+                    for (int post = 0; post < POST_PROCESSING.length; post++) {
+                        try {
+                            Cadence cFinal;
+                            switch (post) {
+                                case 0:  cFinal = c3; break;
+                                case 1:  cFinal = vl = voiceLeading.transform(c3); break;
+                                case 2:  cFinal = dodecafonize.transform(c3); break;
+                                default: cFinal = dodecafonize.transform(vl != null ? vl : voiceLeading.transform(c3));
+                            }
+                            record(t1, t2, t3, post, cFinal.intervals());
+                        } catch (RuntimeException e) {
+                            fail(t1, t2, t3, post, e);
+                        }
+                    }
+                }
+            }
+        }
+
+        private void record(int t1, int t2, int t3, int post, int[][] grid) {
+            long hash = TransformCache.contentHash(grid);
+            if (seen.add(hash)) {
+                buf.append("G\t").append(Long.toHexString(hash)).append('\t');
+                appendGrid(grid);
+                buf.append('\n');
+            }
+            prefix('R', t1, t2, t3, post).append(Long.toHexString(hash)).append('\n');
+            chains++;
+        }
+
+        private void fail(int t1, int t2, int t3, int post, RuntimeException e) {
+            prefix('E', t1, t2, t3, post).append(e).append('\n');
+            chains++;
+            failures++;
+        }
+
+        /** Records one failure line per chain below a stage that threw. */
+        private void failAll(int t1, int t2, int t3, int count, RuntimeException e) {
+            int per2 = stages.length * POST_PROCESSING.length;
+            for (int k = 0; k < count; k++) {
+                int a = t2 >= 0 ? t2 : k / per2;
+                int b = t3 >= 0 ? t3 : k / POST_PROCESSING.length % stages.length;
+                fail(t1, a, b, k % POST_PROCESSING.length, e);
+            }
+        }
+
+        private StringBuilder prefix(char kind, int t1, int t2, int t3, int post) {
+            return buf.append(kind).append('\t')
+                      .append(cadence).append('\t')
+                      .append(tonic).append('\t')
+                      .append(names.get(t1)).append('\t')
+                      .append(names.get(t2)).append('\t')
+                      .append(names.get(t3)).append('\t')
+                      .append(POST_PROCESSING[post]).append('\t');
+        }
+
+        private void appendGrid(int[][] grid) {
+            for (int i = 0; i < grid.length; i++) {
+                if (i > 0) buf.append(';');
+                for (int j = 0; j < grid[i].length; j++) {
+                    if (j > 0) buf.append(',');
+                    buf.append(grid[i][j]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Totals of one exploration run.
+     */
+    public static final class Report {
+        public final long chains, uniqueGrids, failures, elapsedNanos;
+
+        Report(long chains, long uniqueGrids, long failures, long elapsedNanos) {
+            this.chains       = chains;
+            this.uniqueGrids  = uniqueGrids;
+            this.failures     = failures;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public double chainsPerSecond() {
+            return elapsedNanos == 0 ? 0 : chains * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d chains, %d unique grids, %d failures in %.2f s (%.0f chains/s)",
+                chains, uniqueGrids, failures, elapsedNanos / 1e9, chainsPerSecond());
+        }
+    }
+
+    /**
+     * Usage: ChainExplorer output-file [threads]. A ".gz" output is gzip-compressed.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: ChainExplorer <output-file> [threads]");
+            System.exit(2);
+        }
+        int threads = args.length > 1
+            ? Integer.parseInt(args[1])
+            : Runtime.getRuntime().availableProcessors();
+
+        OutputStream os = new FileOutputStream(args[0]);
+        if (args[0].endsWith(".gz")) os = new GZIPOutputStream(os, 1 << 16);
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), 1 << 16)) {
+            Report r = new ChainExplorer(threads).explore(w);
+            System.err.println(r);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.music.batch;
+
+/**
+ * Lock-striped open-addressing set of 64-bit keys. Each stripe is a plain
+ * long[] guarded by its own monitor, so millions of keys cost 8–16 bytes
+ * each instead of a boxed map entry, and writers on different stripes
+ * never contend. Key 0 is remapped internally since it marks empty slots.
+ */
+final class ConcurrentLongSet {
+
+    private static final int STRIPES = 64;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    ConcurrentLongSet() {
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe();
+    }
+
+    /** @return true if {@code key} was not present before */
+    boolean add(long key) {
+        long k = key == 0 ? 0x9E3779B97F4A7C15L : key;
+        return stripes[(int) (k >>> 58)].add(k);
+    }
+
+    long size() {
+        long n = 0;
+        for (Stripe s : stripes) {
+            synchronized (s) { n += s.size; }
+        }
+        return n;
+    }
+
+    private static final class Stripe {
+        long[] slots = new long[1 << 10];
+        int    size;
+
+        synchronized boolean add(long k) {
+            if ((size + 1) * 2 > slots.length) grow();
+            if (!insert(slots, k)) return false;
+            size++;
+            return true;
+        }
+
+        private void grow() {
+            long[] bigger = new long[slots.length * 2];
+            for (long k : slots) if (k != 0) insert(bigger, k);
+            slots = bigger;
+        }
+
+        private static boolean insert(long[] table, long k) {
+            int mask = table.length - 1;
+            int i    = (int) (k ^ (k >>> 32)) & mask;
+            while (table[i] != 0) {
+                if (table[i] == k) return false;
+                i = (i + 1) & mask;
+            }
+            table[i] = k;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,408 @@
+package com.music.batch;
+
+import com.music.domain.Cadence;
+import com.music.registry.CadenceRegistry;
+import com.music.registry.TransformerRegistry;
+import com.music.transform.Transformer;
+import com.music.transform.impl.DodecafonizeTransformer;
+import com.music.transform.impl.TransposeToTonicTransformer;
+import com.music.transform.impl.VoiceLeadingOptimizerTransformer;
+
+import java.util.*;
+
+/**
+ * Checks that the rewritten post-processors still give the output of the
+ * algorithms they replaced.
+ *
+ * Each check runs the shipped transformer and a reference copy of the old
+ * code side by side:
+ *   voice-leading  greedy {@link VoiceLeadingOptimizerTransformer} (branch
+ *                  and bound) against the full permutation search
+ *   dodecafonize   {@link DodecafonizeTransformer} (bitmask row state, row
+ *                  matrix) against the boxed Set/List version, given the 48
+ *                  candidate forms and configurable lookahead it gained since
+ *
+ * Inputs are every {@link CadenceRegistry} entry in every tonic, raw and
+ * after each {@link TransformerRegistry} stage, both as semitone offsets and
+ * raised to MIDI pitches, plus seeded random grids (ragged, negative,
+ * repeated pitches). Grids with chords of more than {@link #MAX_PERMUTED}
+ * notes are left out of the voice-leading check, where the reference would
+ * try every permutation.
+ *
+ * Prints one line per mismatch (up to a limit) and a summary per check;
+ * exits with status 1 when anything differs.
+ */
+public class EquivalenceCheck {
+
+    private static final int MAX_PERMUTED   = 8;
+    private static final int RANDOM_GRIDS   = 3000;
+    private static final int MAX_REPORTED   = 20;
+
+    private int reported;
+
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 1L;
+        EquivalenceCheck check = new EquivalenceCheck();
+        Map<String, int[][]> inputs = check.inputs(seed);
+
+        boolean ok = check.run("voice-leading", inputs, MAX_PERMUTED,
+                               new VoiceLeadingOptimizerTransformer(), new BaselineVoiceLeading());
+        for (int look = 0; look <= 12; look++) {
+            ok &= check.run("dodecafonize/" + look, inputs, Integer.MAX_VALUE,
+                            new DodecafonizeTransformer(look), new BaselineDodecafonize(look));
+        }
+        System.exit(ok ? 0 : 1);
+    }
+
+    /**
+     * Compares {@code actual} with {@code reference} on every input whose
+     * chords have at most {@code maxChord} notes.
+     */
+    private boolean run(String name, Map<String, int[][]> inputs, int maxChord,
+                        Transformer actual, Transformer reference) {
+        int compared = 0, skipped = 0, differ = 0;
+        for (Map.Entry<String, int[][]> e : inputs.entrySet()) {
+            int[][] grid = e.getValue();
+            if (maxChordSize(grid) > maxChord) {
+                skipped++;
+                continue;
+            }
+            int[][] want = reference.transform(new Cadence("Check", copy(grid), null, null)).intervals();
+            int[][] got  = actual.transform(new Cadence("Check", copy(grid), null, null)).intervals();
+            compared++;
+            if (!Arrays.deepEquals(want, got)) {
+                differ++;
+                if (reported++ < MAX_REPORTED) {
+                    System.out.println("MISMATCH " + name + " " + e.getKey()
+                        + "\n  input     " + Arrays.deepToString(grid)
+                        + "\n  reference " + Arrays.deepToString(want)
+                        + "\n  actual    " + Arrays.deepToString(got));
+                }
+            }
+        }
+        System.out.printf("%-16s %6d compared, %5d skipped, %d differ%n", name, compared, skipped, differ);
+        return differ == 0;
+    }
+
+    private Map<String, int[][]> inputs(long seed) {
+        Map<String, int[][]> in = new LinkedHashMap<>();
+        List<String> names = TransformerRegistry.getAvailableTransformers();
+        for (String cadence : CadenceRegistry.getAvailableCadences()) {
+            for (String tonic : CadenceRegistry.getAvailableTonics()) {
+                Cadence semis = new TransposeToTonicTransformer(tonic).transform(CadenceRegistry.getCadence(cadence));
+                addBothRegisters(in, cadence + " in " + tonic, semis.intervals());
+                for (String t : names) {
+                    Cadence c;
+                    try {
+                        c = TransformerRegistry.getTransformer(t).transform(semis);
+                    } catch (RuntimeException ex) {
+                        continue;   // a stage that rejects this input has nothing to compare
+                    }
+                    addBothRegisters(in, cadence + " in " + tonic + " → " + t, c.intervals());
+                }
+            }
+        }
+
+        SplittableRandom rng = new SplittableRandom(seed);
+        for (int i = 0; i < RANDOM_GRIDS; i++) {
+            int     rows   = 1 + rng.nextInt(12);
+            int     width  = 1 + rng.nextInt(6);
+            boolean ragged = rng.nextInt(4) == 0;
+            int     low    = rng.nextBoolean() ? 36 : -24;
+            int     span   = rng.nextBoolean() ? 48 : 7;       // narrow spans repeat pitches
+            int[][] grid   = new int[rows][];
+            for (int r = 0; r < rows; r++) {
+                grid[r] = new int[ragged ? 1 + rng.nextInt(6) : width];
+                for (int j = 0; j < grid[r].length; j++) grid[r][j] = low + rng.nextInt(span);
+            }
+            in.put("random #" + i, grid);
+        }
+        return in;
+    }
+
+    private static void addBothRegisters(Map<String, int[][]> in, String name, int[][] semis) {
+        in.put(name, semis);
+        int[][] midi = copy(semis);
+        for (int[] row : midi) for (int j = 0; j < row.length; j++) row[j] += 60;
+        in.put(name + " (MIDI)", midi);
+    }
+
+    private static int maxChordSize(int[][] grid) {
+        int max = 0;
+        for (int[] row : grid) max = Math.max(max, row.length);
+        return max;
+    }
+
+    private static int[][] copy(int[][] grid) {
+        int[][] out = new int[grid.length][];
+        for (int i = 0; i < grid.length; i++) out[i] = grid[i].clone();
+        return out;
+    }
+
+    // ----- reference: voice leading by full permutation search ---------------
+
+    /**
+     * The greedy voice-leading optimizer before the branch-and-bound search:
+     * every distinct permutation of the next chord is generated, filtered
+     * by the hard rules and scored in full.
+     */
+    private static final class BaselineVoiceLeading implements Transformer {
+
+        private static final int[] MIN_TESSITURA = {40, 48, 55, 60};
+        private static final int[] MAX_TESSITURA = {58, 67, 74, 84};
+
+        @Override
+        public Cadence transform(Cadence c) {
+            int[][] chords = c.intervals();
+            if (chords == null || chords.length == 0) return c;
+
+            List<int[]> optimized = new ArrayList<>();
+            optimized.add(chords[0].clone());
+            for (int i = 1; i < chords.length; i++) {
+                int[] prev = optimized.get(i - 1);
+                optimized.add(chooseBestVoiceLeading(prev, alignVoices(chords[i], prev.length)));
+            }
+            return new Cadence(c.type(), optimized.toArray(new int[0][]), null, null);
+        }
+
+        private int[] alignVoices(int[] chord, int targetSize) {
+            if (chord.length == targetSize) return chord.clone();
+            int[] out  = new int[targetSize];
+            int[] copy = chord.clone();
+            Arrays.sort(copy);
+            for (int i = 0; i < targetSize; i++) {
+                out[i] = chord.length > targetSize
+                    ? copy[i + (copy.length - targetSize)]
+                    : copy[Math.min(i, copy.length - 1)];
+            }
+            return out;
+        }
+
+        private int[] chooseBestVoiceLeading(int[] prev, int[] next) {
+            int[] best      = next.clone();
+            int   bestScore = Integer.MAX_VALUE;
+            for (int[] cand : generatePermutations(next)) {
+                if (violatesHardRules(prev, cand)) continue;
+                int score = scorePermutation(prev, cand);
+                if (score < bestScore) {
+                    bestScore = score;
+                    best      = cand.clone();
+                }
+            }
+            return best;
+        }
+
+        private boolean violatesHardRules(int[] prev, int[] cand) {
+            int n = Math.min(prev.length, cand.length);
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    int ip = ((prev[i] - prev[j]) % 12 + 12) % 12;
+                    int ic = ((cand[i] - cand[j]) % 12 + 12) % 12;
+                    if ((ip == 7 || ip == 0) && ip == ic) return true;
+                }
+            }
+            for (int i = 1; i < cand.length; i++) {
+                if (cand[i] < cand[i - 1]) return true;
+            }
+            if (cand.length == 4) {
+                for (int i = 0; i < 4; i++) {
+                    if (cand[i] < MIN_TESSITURA[i] || cand[i] > MAX_TESSITURA[i]) return true;
+                }
+            }
+            return false;
+        }
+
+        private int scorePermutation(int[] prev, int[] cand) {
+            int score = 0;
+            for (int i = 0; i < prev.length; i++) {
+                int diff = Math.abs(prev[i] - cand[i]);
+                score += diff;
+                if (diff > 9) score += 6;
+                else if (diff > 7) score += 4;
+            }
+            int bassDir = Integer.compare(cand[0], prev[0]);
+            int soprDir = Integer.compare(cand[prev.length - 1], prev[prev.length - 1]);
+            if (bassDir == soprDir && bassDir != 0) score += 5;
+            for (int i = 0; i < prev.length; i++) {
+                if (Math.floorMod(prev[i], 12) == Math.floorMod(cand[i], 12)) score += 3;
+            }
+            for (int i = 1; i < cand.length; i++) {
+                if (cand[i] - cand[i - 1] < 3) score += 2;
+            }
+            return score;
+        }
+
+        private List<int[]> generatePermutations(int[] notes) {
+            int[] sorted = notes.clone();
+            Arrays.sort(sorted);
+            List<int[]> perms = new ArrayList<>();
+            permute(sorted, 0, perms);
+            List<int[]> out  = new ArrayList<>();
+            Set<String> seen = new HashSet<>();
+            for (int[] p : perms) {
+                if (seen.add(Arrays.toString(p))) out.add(p);
+            }
+            return out;
+        }
+
+        private void permute(int[] arr, int k, List<int[]> result) {
+            if (k == arr.length) {
+                result.add(arr.clone());
+                return;
+            }
+            for (int i = k; i < arr.length; i++) {
+                swap(arr, k, i);
+                permute(arr, k + 1, result);
+                swap(arr, k, i);
+            }
+        }
+
+        private void swap(int[] arr, int i, int j) {
+            int tmp = arr[i];
+            arr[i] = arr[j];
+            arr[j] = tmp;
+        }
+    }
+
+    // ----- reference: dodecafonize with boxed sets and lists -----------------
+
+    /**
+     * The dodecafonizer before the bitmask rewrite, walking a flattened list
+     * of notes with Set/List row state. Candidate rows are the 48 forms in
+     * the shipped tie-break order (P, R, I, RI, then each transposed by
+     * 1..11), the first lowest-scoring form winning.
+     */
+    private static final class BaselineDodecafonize implements Transformer {
+
+        private final int lookahead;
+
+        BaselineDodecafonize(int lookahead) {
+            this.lookahead = lookahead;
+        }
+
+        @Override
+        public Cadence transform(Cadence c) {
+            int[][] orig = c.intervals();
+            if (orig == null || orig.length == 0) return c;
+
+            List<int[]> linear = new ArrayList<>();         // {chord, voice, pitch}
+            for (int ci = 0; ci < orig.length; ci++) {
+                for (int vi = 0; vi < orig[ci].length; vi++) linear.add(new int[] {ci, vi, orig[ci][vi]});
+            }
+            int[][] out = copy(orig);
+
+            Set<Integer>  used         = new HashSet<>();
+            List<Integer> currentRow   = new ArrayList<>();
+            List<Integer> nextRow      = null;
+            int           nextRowIndex = 0;
+
+            for (int idx = 0; idx < linear.size(); idx++) {
+                int[] np       = linear.get(idx);
+                int   targetPc = Math.floorMod(np[2], 12);
+                int   chosenPc;
+
+                if (nextRow != null && nextRowIndex < nextRow.size()) {
+                    chosenPc = nextRow.get(nextRowIndex++);
+                    Set<Integer> chordPcs = pitchClasses(out[np[0]]);
+                    if (chordPcs.contains(chosenPc)) {
+                        int scan = nextRowIndex;
+                        while (scan < nextRow.size() && chordPcs.contains(nextRow.get(scan))) scan++;
+                        if (scan < nextRow.size()) {
+                            chosenPc     = nextRow.get(scan);
+                            nextRowIndex = scan + 1;
+                        }
+                    }
+                } else if (!used.contains(targetPc)) {
+                    chosenPc = targetPc;
+                } else {
+                    chosenPc = chooseUnusedClosest(targetPc, used, pitchClasses(out[np[0]]));
+                }
+                used.add(chosenPc);
+                currentRow.add(chosenPc);
+                out[np[0]][np[1]] = reassign(out[np[0]][np[1]], chosenPc);
+
+                if (currentRow.size() == 12) {
+                    List<Integer> segment = new ArrayList<>();
+                    for (int i = idx + 1; i < linear.size() && segment.size() < lookahead; i++) {
+                        segment.add(Math.floorMod(linear.get(i)[2], 12));
+                    }
+                    nextRow      = chooseBestRow(new ArrayList<>(currentRow), segment);
+                    nextRowIndex = 0;
+                    used.clear();
+                    currentRow.clear();
+                }
+            }
+            return new Cadence(c.type(), out, null, null);
+        }
+
+        private Set<Integer> pitchClasses(int[] chord) {
+            Set<Integer> pcs = new HashSet<>();
+            for (int p : chord) pcs.add(Math.floorMod(p, 12));
+            return pcs;
+        }
+
+        private int chooseUnusedClosest(int targetPc, Set<Integer> used, Set<Integer> chordPcs) {
+            int bestPc = -1, bestScore = Integer.MAX_VALUE;
+            for (int pc = 0; pc < 12; pc++) {
+                if (used.contains(pc)) continue;
+                int score = distance(pc, targetPc) + (chordPcs.contains(pc) ? 3 : 0);
+                if (score < bestScore) {
+                    bestScore = score;
+                    bestPc    = pc;
+                }
+            }
+            return bestPc >= 0 ? bestPc : targetPc;
+        }
+
+        private int reassign(int pitch, int pc) {
+            int base = pitch - Math.floorMod(pitch, 12) + pc;
+            int best = base, bestDist = Integer.MAX_VALUE;
+            for (int cand : new int[] {base - 12, base, base + 12}) {
+                if (Math.abs(cand - pitch) < bestDist) {
+                    bestDist = Math.abs(cand - pitch);
+                    best     = cand;
+                }
+            }
+            return best;
+        }
+
+        private List<Integer> chooseBestRow(List<Integer> row, List<Integer> segment) {
+            List<Integer> inv = new ArrayList<>();
+            for (int pc : row) inv.add(Math.floorMod(2 * row.get(0) - pc, 12));
+            List<List<Integer>> forms = Arrays.asList(row, reversed(row), inv, reversed(inv));
+
+            List<List<Integer>> candidates = new ArrayList<>(forms);
+            for (List<Integer> form : forms) {
+                for (int t = 1; t < 12; t++) {
+                    List<Integer> moved = new ArrayList<>();
+                    for (int pc : form) moved.add((pc + t) % 12);
+                    candidates.add(moved);
+                }
+            }
+
+            List<Integer> best      = candidates.get(0);
+            int           bestScore = Integer.MAX_VALUE;
+            for (List<Integer> cand : candidates) {
+                int len   = Math.min(cand.size(), segment.size());
+                int score = len == 0 ? Integer.MAX_VALUE / 2 : 0;
+                for (int i = 0; i < len; i++) score += distance(cand.get(i), segment.get(i));
+                if (score < bestScore) {
+                    bestScore = score;
+                    best      = cand;
+                }
+            }
+            return best;
+        }
+
+        private List<Integer> reversed(List<Integer> row) {
+            List<Integer> r = new ArrayList<>(row);
+            Collections.reverse(r);
+            return r;
+        }
+
+        private int distance(int a, int b) {
+            int d = Math.abs(a - b);
+            return Math.min(d, 12 - d);
+        }
+    }
+}
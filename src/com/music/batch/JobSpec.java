@@ -0,0 +1,187 @@
+package com.music.batch;
+
+import com.music.registry.CadenceRegistry;
+import com.music.registry.Names;
+import com.music.registry.TransformerRegistry;
+import com.music.service.Meter;
+import com.music.service.MidiExporter;
+import com.music.transform.Transformer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One batch job: what MainApp's Apply + Export buttons would do for a given
+ * set of selections.
+ *
+ * A spec is one line of {@code key=value} fields separated by {@code ;}:
+ * <pre>
+ *   cadence=ii–V–I (Maj); tonic=D; chain=Retrograde,Inversion; post=vl,dodeca; tempo=90; name=job1
+ * </pre>
+ * Keys:
+ *  - cadence  registry name (required)
+ *  - tonic    C, C#, Db, … Cb (default C)
+ *  - chain    comma-separated transformer names, any length (default none)
+ *  - post     none | vl | dodeca | vl,dodeca (default none; applied VL first)
+ *  - tempo    beats per minute, 4-60000000 (default 60)
+ *  - meter    time signature of the score, one chord per beat (default 4/4)
+ *  - formats  comma-separated musicxml, mxl (compressed), mid, wav (default musicxml,mid)
+ *  - program  General MIDI program of the .mid tracks, 0-127 (default 0, piano)
+ *  - bank     bank of that program (default 0)
+ *  - seed     harmonizer seed (default derived from the job number)
+ *  - name     base name of the output files (default job-N)
+ * Cadence and transformer names are looked up with {@link Names#resolve}.
+ */
+public final class JobSpec {
+
+    public final int               number;
+    public final String            cadence;
+    public final String            tonic;
+    public final List<String>      chainNames;
+    public final List<Transformer> chain;
+    public final boolean           voiceLeading;
+    public final boolean           dodecafonize;
+    public final int               tempo;
+    public final Meter             meter;
+    public final boolean           musicXml;
+    public final boolean           mxl;
+    public final boolean           midi;
+    public final boolean           wav;
+    public final int               program;
+    public final int               bank;
+    public final long              seed;
+    public final String            name;
+
+    private JobSpec(int number, String cadence, String tonic, List<String> chainNames,
+                    List<Transformer> chain, boolean voiceLeading, boolean dodecafonize,
+                    int tempo, Meter meter, boolean musicXml, boolean mxl, boolean midi, boolean wav,
+                    int program, int bank, long seed, String name) {
+        this.number       = number;
+        this.cadence      = cadence;
+        this.tonic        = tonic;
+        this.chainNames   = chainNames;
+        this.chain        = chain;
+        this.voiceLeading = voiceLeading;
+        this.dodecafonize = dodecafonize;
+        this.tempo        = tempo;
+        this.meter        = meter;
+        this.musicXml     = musicXml;
+        this.mxl          = mxl;
+        this.midi         = midi;
+        this.wav          = wav;
+        this.program      = program;
+        this.bank         = bank;
+        this.seed         = seed;
+        this.name         = name;
+    }
+
+    /**
+     * @param number 1-based job number, used for the default name and seed
+     * @throws IllegalArgumentException with a readable message on any bad field
+     */
+    public static JobSpec parse(String line, int number, long baseSeed) {
+        String  cadence = null, tonic = "C", name = "job-" + number;
+        int     tempo   = 60, program = 0, bank = 0;
+        Meter   meter   = Meter.COMMON;
+        long    seed    = baseSeed + number;
+        boolean vl      = false, dodeca = false, xml = true, mxl = false, mid = true, wav = false;
+        List<String>      chainNames = new ArrayList<>();
+        List<Transformer> chain      = new ArrayList<>();
+
+        for (String field : line.split(";")) {
+            field = field.trim();
+            if (field.isEmpty()) continue;
+            int eq = field.indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("expected key=value, got \"" + field + "\"");
+            String key   = field.substring(0, eq).trim().toLowerCase();
+            String value = field.substring(eq + 1).trim();
+
+            switch (key) {
+                case "cadence":
+                    cadence = Names.resolve("cadence", value, CadenceRegistry.getAvailableCadences());
+                    break;
+                case "tonic":
+                    if (!CadenceRegistry.isTonic(value)) throw new IllegalArgumentException("unknown tonic \"" + value + "\"");
+                    tonic = value;
+                    break;
+                case "chain":
+                    for (String t : value.split(",")) {
+                        if (t.trim().isEmpty()) continue;
+                        String n = Names.resolve("transformer", t.trim(), TransformerRegistry.getAvailableTransformers());
+                        chainNames.add(n);
+                        chain.add(TransformerRegistry.getTransformer(n));
+                    }
+                    break;
+                case "post":
+                    for (String p : value.split(",")) {
+                        switch (p.trim().toLowerCase()) {
+                            case "": case "none":                    break;
+                            case "vl": case "voice-leading":         vl = true; break;
+                            case "dodeca": case "dodecafonize":      dodeca = true; break;
+                            default: throw new IllegalArgumentException("unknown post-processor \"" + p.trim() + "\"");
+                        }
+                    }
+                    break;
+                case "tempo":
+                    tempo = parseInt(key, value);
+                    if (tempo < MidiExporter.MIN_BPM || tempo > MidiExporter.MAX_BPM) {
+                        throw new IllegalArgumentException(
+                            "tempo must be " + MidiExporter.MIN_BPM + "-" + MidiExporter.MAX_BPM);
+                    }
+                    break;
+                case "meter":
+                    meter = Meter.parse(value);
+                    break;
+                case "formats":
+                    xml = mxl = mid = wav = false;
+                    for (String f : value.split(",")) {
+                        switch (f.trim().toLowerCase()) {
+                            case "musicxml": case "xml": xml = true; break;
+                            case "mxl":                  mxl = true; break;
+                            case "mid": case "midi":     mid = true; break;
+                            case "wav":                  wav = true; break;
+                            default: throw new IllegalArgumentException("unknown format \"" + f.trim() + "\"");
+                        }
+                    }
+                    break;
+                case "program":
+                    program = parseInt(key, value);
+                    if (program < 0 || program > 127) throw new IllegalArgumentException("program must be 0-127");
+                    break;
+                case "bank":
+                    bank = parseInt(key, value);
+                    if (bank < 0 || bank > 0x3FFF) throw new IllegalArgumentException("bank must be 0-16383");
+                    break;
+                case "seed":
+                    try {
+                        seed = Long.parseLong(value);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("seed is not a number: \"" + value + "\"");
+                    }
+                    break;
+                case "name":
+                    if (value.isEmpty() || !value.matches("[A-Za-z0-9._-]+") || value.startsWith(".")) {
+                        throw new IllegalArgumentException("name may only use letters, digits, '.', '_' and '-'");
+                    }
+                    name = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown key \"" + key + "\"");
+            }
+        }
+        if (cadence == null) throw new IllegalArgumentException("missing cadence");
+
+        return new JobSpec(number, cadence, tonic,
+                           Collections.unmodifiableList(chainNames), Collections.unmodifiableList(chain),
+                           vl, dodeca, tempo, meter, xml, mxl, mid, wav, program, bank, seed, name);
+    }
+
+    private static int parseInt(String key, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " is not a number: \"" + value + "\"");
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.music.domain;
+
+/**
+ * Immutable, index-mapped view of a cadence grid, for transformers that
+ * only reorder or repeat values (retrograde, cycle, extend, duplicate
+ * chords, rows⇄cols transposition).
+ *
+ * The first view over a plain {@link Cadence} snapshots its grid into a
+ * {@link PackedGrid}; from then on every reordering just composes index
+ * maps in O(1), however long the progression or the chain. Each axis maps
+ * an index {@code i} to {@code (a + s·i) mod m} over the base (s = ±1),
+ * repeated {@code k} times — a form closed under all five operations, so
+ * lookups stay O(1) at any chain depth.
+ *
+ * {@link #intervals()} materializes a fresh {@code int[][]} on every call,
+ * which the caller owns; mutating it never affects this view, its source, or
+ * other views of the same base, so views can be shared freely across threads.
+ * Code that only scans the grid uses {@link #size()} and
+ * {@link #copyRow(int, int[])} instead and allocates nothing.
+ */
+public final class CadenceView extends Cadence {
+
+    private final PackedGrid base;
+    private final int        baseRows;
+    private final int        baseWidth;   // -1 when the base is ragged
+    private final boolean    swapped;     // rows of the view are columns of the base
+
+    // row axis: view row i → (ra + rs·i) mod (swapped ? baseWidth : baseRows), rk repetitions
+    private final int ra, rs, rk;
+    // column axis: view column j → (ca + cs·j) mod (swapped ? baseRows : row length), ck repetitions
+    private final int ca, cs, ck;
+
+    private CadenceView(String type, String description, PackedGrid base, int baseRows, int baseWidth,
+                        boolean swapped, int ra, int rs, int rk, int ca, int cs, int ck) {
+        super(type, null, null, description);
+        this.base      = base;
+        this.baseRows  = baseRows;
+        this.baseWidth = baseWidth;
+        this.swapped   = swapped;
+        this.ra = ra; this.rs = rs; this.rk = rk;
+        this.ca = ca; this.cs = cs; this.ck = ck;
+    }
+
+    /**
+     * {@code c} itself if it already is a view, otherwise an identity view
+     * over a snapshot of its grid.
+     */
+    public static CadenceView of(Cadence c) {
+        if (c instanceof CadenceView) return (CadenceView) c;
+        int[][] grid  = c.intervals();
+        int     width = grid.length == 0 ? 0 : grid[0].length;
+        for (int[] row : grid) {
+            if (row.length != width) { width = -1; break; }
+        }
+        return new CadenceView(c.type(), c.description(), PackedGrid.of(grid), grid.length, width,
+                               false, 0, 1, 1, 0, 1, 1);
+    }
+
+    // ----- reorderings -------------------------------------------------------
+
+    /** Chords in reverse order. */
+    public CadenceView retrograde(String type, String description) {
+        int n = rows();
+        return withRows(type, description, ra + rs * (n - 1), -rs, rk);
+    }
+
+    /** Chords rotated forward one step: chord 0 moves to the end. */
+    public CadenceView cycle(String type, String description) {
+        return withRows(type, description, ra + rs, rs, rk);
+    }
+
+    /** The whole progression played twice. */
+    public CadenceView extend(String type, String description) {
+        return withRows(type, description, ra, rs, rk * 2);
+    }
+
+    /** Every chord's notes repeated once more within the chord. */
+    public CadenceView duplicateChords(String type, String description) {
+        return new CadenceView(type, description, base, baseRows, baseWidth, swapped,
+                               ra, rs, rk, ca, cs, ck * 2);
+    }
+
+    /**
+     * Rows and columns swapped. Only defined for non-empty rectangular grids;
+     * see {@link #isRectangular()}.
+     */
+    public CadenceView transpose(String type, String description) {
+        if (!isRectangular() || rows() == 0) {
+            throw new IllegalStateException("transpose needs a non-empty rectangular grid");
+        }
+        return new CadenceView(type, description, base, baseRows, baseWidth, !swapped,
+                               ca, cs, ck, ra, rs, rk);
+    }
+
+    private CadenceView withRows(String type, String description, int a, int s, int k) {
+        int m = swapped ? baseWidth : baseRows;
+        return new CadenceView(type, description, base, baseRows, baseWidth, swapped,
+                               m == 0 ? 0 : Math.floorMod(a, m), s, k, ca, cs, ck);
+    }
+
+    // ----- access ------------------------------------------------------------
+
+    /** Whether every chord has the same number of notes. */
+    public boolean isRectangular() {
+        return baseWidth >= 0;
+    }
+
+    public int rows() {
+        return rk * (swapped ? baseWidth : baseRows);
+    }
+
+    public int rowLength(int row) {
+        return ck * (swapped ? baseRows : base.rowLength(sourceRow(row)));
+    }
+
+    /** Longest row of the view. */
+    public int maxRowLength() {
+        return ck * (swapped ? baseRows : maxBaseRowLength());
+    }
+
+    /**
+     * Total number of values in the view, computed from the base without
+     * visiting it: every reordering maps each base value to exactly
+     * {@code rk·ck} view cells.
+     */
+    public long size() {
+        return (long) rk * ck * base.size();
+    }
+
+    public int get(int row, int col) {
+        int len = rowLength(row);
+        if (col < 0 || col >= len) {
+            throw new IndexOutOfBoundsException("column " + col + " of row " + row + " (length " + len + ")");
+        }
+        int r = sourceRow(row);
+        return swapped
+            ? base.get(Math.floorMod(ca + cs * col, baseRows), r)
+            : base.get(r, Math.floorMod(ca + cs * col, len / ck));
+    }
+
+    /**
+     * Decodes {@code row} into {@code dst}, which must hold at least
+     * {@link #rowLength(int)} values.
+     *
+     * @return the row length
+     */
+    public int copyRow(int row, int[] dst) {
+        int r   = sourceRow(row);
+        int len = rowLength(row);
+        if (swapped) {
+            for (int j = 0; j < len; j++) dst[j] = base.value(Math.floorMod(ca + cs * j, baseRows), r);
+        } else {
+            int w = len / ck;
+            for (int j = 0; j < len; j++) dst[j] = base.value(r, Math.floorMod(ca + cs * j, w));
+        }
+        return len;
+    }
+
+    /** Fresh grid owned by the caller. */
+    @Override
+    public int[][] intervals() {
+        int     n   = rows();
+        int[][] out = new int[n][];
+        for (int i = 0; i < n; i++) {
+            out[i] = new int[rowLength(i)];
+            copyRow(i, out[i]);
+        }
+        return out;
+    }
+
+    private int sourceRow(int row) {
+        int n = rows();
+        if (row < 0 || row >= n) {
+            throw new IndexOutOfBoundsException("row " + row + " of " + n);
+        }
+        return Math.floorMod(ra + rs * row, swapped ? baseWidth : baseRows);
+    }
+
+    private int maxBaseRowLength() {
+        if (baseWidth >= 0) return baseWidth;
+        int max = 0;
+        for (int r = 0; r < baseRows; r++) max = Math.max(max, base.rowLength(r));
+        return max;
+    }
+}
@@ -0,0 +1,200 @@
+package com.music.domain;
+
+import java.util.Arrays;
+
+/**
+ * Compact, immutable copy of an {@code int[][]} semitone/MIDI grid.
+ *
+ * All values live in one contiguous array using the narrowest element type
+ * that holds them: {@code byte} for ordinary MIDI and interval grids,
+ * {@code short} or {@code int} only when a transform pushed values out of
+ * range. Row offsets are kept only for ragged grids; uniform grids (every
+ * chord with the same number of voices) store just the width. A typical
+ * 4-voice progression takes a quarter of the heap of its {@code int[][]} and
+ * has no per-chord object headers.
+ *
+ * Existing code that needs {@code int[][]} calls {@link #toIntervals()};
+ * scanning code decodes rows into a reusable buffer with
+ * {@link #copyRow(int, int[])} and allocates nothing.
+ */
+public final class PackedGrid {
+
+    private final byte[]  bytes;     // exactly one of bytes/shorts/ints is set
+    private final short[] shorts;
+    private final int[]   ints;
+    private final int[]   offsets;   // rows + 1 entries, null when rows are uniform
+    private final int     rows;
+    private final int     width;     // row length of a uniform grid
+
+    private PackedGrid(byte[] bytes, short[] shorts, int[] ints, int[] offsets, int rows, int width) {
+        this.bytes   = bytes;
+        this.shorts  = shorts;
+        this.ints    = ints;
+        this.offsets = offsets;
+        this.rows    = rows;
+        this.width   = width;
+    }
+
+    /**
+     * Packs {@code grid}; later changes to {@code grid} do not affect the copy.
+     */
+    public static PackedGrid of(int[][] grid) {
+        int     rows    = grid.length;
+        int     width   = rows == 0 ? 0 : grid[0].length;
+        boolean uniform = true;
+        int     total   = 0;
+        int     min     = 0, max = 0;
+        for (int[] row : grid) {
+            if (row.length != width) uniform = false;
+            total += row.length;
+            for (int x : row) {
+                if (x < min) min = x;
+                if (x > max) max = x;
+            }
+        }
+
+        int[] offsets = null;
+        if (!uniform) {
+            offsets = new int[rows + 1];
+            for (int i = 0; i < rows; i++) offsets[i + 1] = offsets[i] + grid[i].length;
+        }
+
+        if (min >= Byte.MIN_VALUE && max <= Byte.MAX_VALUE) {
+            byte[] data = new byte[total];
+            int    p    = 0;
+            for (int[] row : grid) for (int x : row) data[p++] = (byte) x;
+            return new PackedGrid(data, null, null, offsets, rows, width);
+        }
+        if (min >= Short.MIN_VALUE && max <= Short.MAX_VALUE) {
+            short[] data = new short[total];
+            int     p    = 0;
+            for (int[] row : grid) for (int x : row) data[p++] = (short) x;
+            return new PackedGrid(null, data, null, offsets, rows, width);
+        }
+        int[] data = new int[total];
+        int   p    = 0;
+        for (int[] row : grid) {
+            System.arraycopy(row, 0, data, p, row.length);
+            p += row.length;
+        }
+        return new PackedGrid(null, null, data, offsets, rows, width);
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int rowLength(int row) {
+        checkRow(row);
+        return offsets == null ? width : offsets[row + 1] - offsets[row];
+    }
+
+    /** Total number of values in the grid. */
+    public int size() {
+        return offsets == null ? rows * width : offsets[rows];
+    }
+
+    public int get(int row, int col) {
+        int len = rowLength(row);
+        if (col < 0 || col >= len) {
+            throw new IndexOutOfBoundsException("column " + col + " of row " + row + " (length " + len + ")");
+        }
+        return at(start(row) + col);
+    }
+
+    /**
+     * Decodes {@code row} into {@code dst}, which must hold at least
+     * {@link #rowLength(int)} values.
+     *
+     * @return the row length
+     */
+    public int copyRow(int row, int[] dst) {
+        int len = rowLength(row);
+        int s   = start(row);
+        if (bytes != null) {
+            for (int j = 0; j < len; j++) dst[j] = bytes[s + j];
+        } else if (shorts != null) {
+            for (int j = 0; j < len; j++) dst[j] = shorts[s + j];
+        } else {
+            System.arraycopy(ints, s, dst, 0, len);
+        }
+        return len;
+    }
+
+    /** Freshly allocated copy of {@code row}. */
+    public int[] row(int row) {
+        int[] out = new int[rowLength(row)];
+        copyRow(row, out);
+        return out;
+    }
+
+    /** Freshly allocated {@code int[][]} equal to the packed grid. */
+    public int[][] toIntervals() {
+        int[][] out = new int[rows][];
+        for (int i = 0; i < rows; i++) out[i] = row(i);
+        return out;
+    }
+
+    /** Whether {@code grid} has exactly this shape and these values. */
+    public boolean matches(int[][] grid) {
+        if (grid.length != rows) return false;
+        for (int i = 0; i < rows; i++) {
+            int[] row = grid[i];
+            if (row.length != rowLength(i)) return false;
+            int s = start(i);
+            for (int j = 0; j < row.length; j++) {
+                if (at(s + j) != row[j]) return false;
+            }
+        }
+        return true;
+    }
+
+    /** Bits per stored value: 8, 16 or 32. */
+    public int valueBits() {
+        return bytes != null ? 8 : shorts != null ? 16 : 32;
+    }
+
+    /** Value at {@code row}, {@code col} without bounds checks, for {@link CadenceView}. */
+    int value(int row, int col) {
+        return at(start(row) + col);
+    }
+
+    private int start(int row) {
+        return offsets == null ? row * width : offsets[row];
+    }
+
+    private int at(int i) {
+        return bytes != null ? bytes[i] : shorts != null ? shorts[i] : ints[i];
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= rows) {
+            throw new IndexOutOfBoundsException("row " + row + " of " + rows);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof PackedGrid)) return false;
+        PackedGrid g = (PackedGrid) o;
+        if (g.rows != rows || g.size() != size()) return false;
+        if (offsets == null ? g.offsets != null || g.width != width
+                            : !Arrays.equals(offsets, g.offsets)) return false;
+        for (int i = 0, n = size(); i < n; i++) {
+            if (at(i) != g.at(i)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = rows;
+        for (int i = 0, n = size(); i < n; i++) h = 31 * h + at(i);
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.deepToString(toIntervals());
+    }
+}
@@ -27,10 +27,34 @@ public class CadenceRegistry {
         });
     }
 
+    private static final String[] TONICS = {
+        "C","C#","D","Eb","E","F","F#","G","G#","A","Bb","B"
+    };
+
+    // every spelling TransposeToTonicTransformer understands
+    private static final Set<String> SPELLINGS = new HashSet<>(Arrays.asList(
+        "C","C#","Db","D","D#","Eb","E","F","F#","Gb","G","G#","Ab","A","A#","Bb","B","Cb"
+    ));
+
     public static List<String> getAvailableCadences() {
         return new ArrayList<>(CADENCES.keySet());
     }
 
+    /**
+     * Tonics the cadences can be transposed to, C first.
+     */
+    public static List<String> getAvailableTonics() {
+        return Arrays.asList(TONICS.clone());
+    }
+
+    /**
+     * Whether {@code tonic} is a spelling the tonic shift accepts,
+     * enharmonics included (Db as well as C#).
+     */
+    public static boolean isTonic(String tonic) {
+        return SPELLINGS.contains(tonic);
+    }
+
     /**
      * Returns a Cadence carrying raw intervals only.
      */
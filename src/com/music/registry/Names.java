@@ -0,0 +1,45 @@
+package com.music.registry;
+
+import java.util.List;
+
+/**
+ * Lenient lookup of registry names typed by people or other tools.
+ */
+public final class Names {
+
+    private Names() {}
+
+    /**
+     * Returns {@code value} if it is one of {@code names}; otherwise the one
+     * name equal to it when both are reduced to ASCII letters and digits, so
+     * "ii-V-I (Maj)" finds "ii–V–I (Maj)" and "Reciprocal 12-x" finds
+     * "Reciprocal (12–x)".
+     *
+     * @param what kind of name, for error messages
+     * @throws IllegalArgumentException when nothing or more than one name matches
+     */
+    public static String resolve(String what, String value, List<String> names) {
+        if (names.contains(value)) return value;
+        String key   = fold(value);
+        String found = null;
+        for (String n : names) {
+            if (!fold(n).equals(key)) continue;
+            if (found != null) {
+                throw new IllegalArgumentException("ambiguous " + what + " \"" + value + "\": "
+                                                   + found + " or " + n);
+            }
+            found = n;
+        }
+        if (found == null || key.isEmpty()) throw new IllegalArgumentException("unknown " + what + " \"" + value + "\"");
+        return found;
+    }
+
+    private static String fold(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 128 && Character.isLetterOrDigit(c)) sb.append(c);
+        }
+        return sb.toString();
+    }
+}
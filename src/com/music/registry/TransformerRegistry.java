@@ -0,0 +1,54 @@
+package com.music.registry;
+
+import com.music.transform.Transformer;
+import com.music.transform.impl.*;
+
+import java.util.*;
+
+/**
+ * Named transformers offered as T1/T2/T3, in display order.
+ * VoiceLeadingOptimizer and Dodecafonize are post-processors and are
+ * NOT listed here. All instances are stateless and safe to share.
+ */
+public class TransformerRegistry {
+
+    private static final Map<String,Transformer> TRANSFORMERS = new LinkedHashMap<>();
+
+    static {
+        TRANSFORMERS.put("Identity",              new IdentityTransformer());
+        TRANSFORMERS.put("Add Ninth to …",        new AddNinthTransformer());
+        TRANSFORMERS.put("Add Seventh to …",      new AddSeventhTransformer());
+        TRANSFORMERS.put("Augmentation ×2",       new AugmentationTransformer());
+        TRANSFORMERS.put("Diminution ÷2",         new DiminutionTransformer());
+        TRANSFORMERS.put("Cycle",                 new CycleTransformer());
+        TRANSFORMERS.put("Duplicate Chords",      new DuplicateChordTransformer());
+        TRANSFORMERS.put("Extend Progression",    new ExtendProgressionTransformer());
+        TRANSFORMERS.put("Inversion",             new InverterTransformer());
+        TRANSFORMERS.put("Major→Minor",           new MajorToMinorTransformer());
+        TRANSFORMERS.put("Negation",              new NegationTransformer());
+        TRANSFORMERS.put("Reciprocal (12–x)",     new ReciprocalTransformer());
+        TRANSFORMERS.put("Retrograde",            new RetrogradeTransformer());
+        TRANSFORMERS.put("Transpose +2",          new TransposeTransformer());
+        TRANSFORMERS.put("Transpose Rows⇄Cols",   new TransposeMatrixTransformer());
+        TRANSFORMERS.put("Polynomial Derivative", new PolynomialDerivativeTransformer());
+        TRANSFORMERS.put("Polynomial Integral",   new PolynomialIntegralTransformer());
+    }
+
+    public static List<String> getAvailableTransformers() {
+        return new ArrayList<>(TRANSFORMERS.keySet());
+    }
+
+    /**
+     * Returns the named transformer, or null if there is none.
+     */
+    public static Transformer getTransformer(String name) {
+        return TRANSFORMERS.get(name);
+    }
+
+    /**
+     * Read-only view of every registered transformer, in display order.
+     */
+    public static Map<String,Transformer> getTransformers() {
+        return Collections.unmodifiableMap(TRANSFORMERS);
+    }
+}
@@ -0,0 +1,434 @@
+package com.music.server;
+
+import com.music.domain.Cadence;
+import com.music.registry.CadenceRegistry;
+import com.music.registry.Names;
+import com.music.registry.TransformerRegistry;
+import com.music.service.CadencePipeline;
+import com.music.service.Meter;
+import com.music.service.ScoreRenderer;
+import com.music.transform.TransformCache;
+import com.music.transform.Transformer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Localhost JSON service over the generator, so other tools can call it
+ * without starting a JVM per job.
+ *
+ * Endpoints (POST bodies are one request object, or an array of them for a
+ * batch; the reply mirrors that shape):
+ *   GET  /registry   cadence, tonic, transformer and post-processor names
+ *   POST /transform  {cadence | grid, tonic, chain[], post[]}  → semitone grid
+ *   POST /harmonize  … plus seed                             → MIDI grid
+ *   POST /render     … plus tempo, meter ("3/4"), or just {midiGrid, tempo, meter} → MusicXML
+ *   GET  /stats      per-endpoint counts, p50/p99/max latency, cache counters
+ *
+ * Items run on a fixed worker pool. Admission is all-or-nothing per request:
+ * when running plus queued items would exceed the configured capacity the
+ * whole request is refused with 503 and Retry-After, so the server sheds
+ * load instead of queueing without bound. Connections are served by a
+ * bounded handler pool too, so request bodies are read a few at a time
+ * and connections beyond its queue are closed unanswered. In a batch, a bad item yields an
+ * {"error": …} entry and the rest still run.
+ */
+public class CadenceServer {
+
+    private static final int MAX_BODY = 8 << 20;
+
+    private final HttpServer         http;
+    private final ExecutorService    handlers;
+    private final ThreadPoolExecutor workers;
+    private final Semaphore          capacity;
+    private final int                maxItems;
+    private final int                maxBatch;
+    private final CadencePipeline    pipeline = new CadencePipeline(new TransformCache(4096, 1 << 22));
+    private final Map<String, LatencyStats> stats = new LinkedHashMap<>();
+    private final long               started  = System.nanoTime();
+
+    /**
+     * @param port       TCP port on the loopback interface; 0 picks a free one
+     * @param threads    worker threads running request items
+     * @param queueDepth items allowed to wait for a worker before requests are refused
+     * @param maxBatch   largest accepted batch
+     */
+    public CadenceServer(int port, int threads, int queueDepth, int maxBatch) throws IOException {
+        if (threads < 1 || queueDepth < 0 || maxBatch < 1) {
+            throw new IllegalArgumentException("threads and maxBatch must be >= 1, queueDepth >= 0");
+        }
+        this.maxItems = threads + queueDepth;
+        this.maxBatch = Math.min(maxBatch, maxItems);
+        this.capacity = new Semaphore(maxItems);
+        // the semaphore bounds this queue
+        this.workers  = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                                               new LinkedBlockingQueue<>());
+        // exchanges read, parse, wait and reply on these threads only, so at
+        // most 2·threads bodies are buffered at once; connections waiting for
+        // one hold no body yet, and once maxItems are waiting more are closed
+        int handlerThreads = threads * 2;
+        this.handlers = new ThreadPoolExecutor(handlerThreads, handlerThreads, 0, TimeUnit.MILLISECONDS,
+                                               new ArrayBlockingQueue<>(maxItems));
+
+        http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        http.setExecutor(handlers);
+
+        http.createContext("/registry", ex -> get(ex, this::registry));
+        http.createContext("/stats",    ex -> get(ex, this::stats));
+        post("/transform", this::transform);
+        post("/harmonize", this::harmonize);
+        post("/render",    this::render);
+    }
+
+    public void start() {
+        http.start();
+    }
+
+    public void stop() {
+        http.stop(0);
+        handlers.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    public int port() {
+        return http.getAddress().getPort();
+    }
+
+    // ----- endpoints ---------------------------------------------------------
+
+    private Map<String, Object> registry() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("cadences",       CadenceRegistry.getAvailableCadences());
+        m.put("tonics",         CadenceRegistry.getAvailableTonics());
+        m.put("transformers",   TransformerRegistry.getAvailableTransformers());
+        m.put("postProcessors", Arrays.asList("vl", "dodeca"));
+        return m;
+    }
+
+    private Map<String, Object> stats() {
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        stats.forEach((name, s) -> endpoints.put(name, s.snapshot()));
+
+        TransformCache      cache = pipeline.cache();
+        Map<String, Object> c     = new LinkedHashMap<>();
+        c.put("size",      cache.size());
+        c.put("hits",      cache.hits());
+        c.put("misses",    cache.misses());
+        c.put("evictions", cache.evictions());
+
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("uptimeMs",  (System.nanoTime() - started) / 1_000_000);
+        m.put("workers",   workers.getCorePoolSize());
+        m.put("capacity",  maxItems);
+        m.put("inFlight",  maxItems - capacity.availablePermits());
+        m.put("endpoints", endpoints);
+        m.put("cache",     c);
+        return m;
+    }
+
+    private Map<String, Object> transform(Map<String, Object> req) {
+        Cadence c = semitones(req);
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("type",        c.type());
+        m.put("description", c.description());
+        m.put("grid",        c.intervals());
+        return m;
+    }
+
+    private Map<String, Object> harmonize(Map<String, Object> req) {
+        Cadence c    = semitones(req);
+        long    seed = req.containsKey("seed") ? number(req, "seed") : ThreadLocalRandom.current().nextLong();
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("type",        c.type());
+        m.put("description", c.description());
+        m.put("grid",        c.intervals());
+        m.put("seed",        seed);
+        m.put("midiGrid",    pipeline.harmonize(c, seed).intervals());
+        return m;
+    }
+
+    private Map<String, Object> render(Map<String, Object> req) {
+        int tempo = req.containsKey("tempo") ? (int) number(req, "tempo") : 60;
+        if (tempo <= 0) throw new IllegalArgumentException("tempo must be positive");
+        Meter meter = req.containsKey("meter") ? Meter.parse(string(req, "meter")) : Meter.COMMON;
+
+        Map<String, Object> m;
+        int[][] midiGrid;
+        if (req.containsKey("midiGrid")) {
+            m        = new LinkedHashMap<>();
+            midiGrid = grid(req.get("midiGrid"), "midiGrid");
+        } else {
+            m        = harmonize(req);
+            midiGrid = (int[][]) m.get("midiGrid");
+        }
+        m.put("tempo",    tempo);
+        m.put("meter",    meter.toString());
+        m.put("musicxml", ScoreRenderer.toMusicXMLFromMidi(new Cadence("Rendered", midiGrid, null, null), tempo, meter));
+        return m;
+    }
+
+    /** Source, tonic shift, chain and post-processors of a request. */
+    private Cadence semitones(Map<String, Object> req) {
+        Cadence raw;
+        if (req.containsKey("cadence")) {
+            raw = CadenceRegistry.getCadence(Names.resolve("cadence", string(req, "cadence"),
+                                                           CadenceRegistry.getAvailableCadences()));
+        } else if (req.containsKey("grid")) {
+            raw = new Cadence("Custom", grid(req.get("grid"), "grid"), null, "Custom grid");
+        } else {
+            throw new IllegalArgumentException("need \"cadence\" or \"grid\"");
+        }
+
+        String tonic = req.containsKey("tonic") ? string(req, "tonic") : "C";
+        if (!CadenceRegistry.isTonic(tonic)) throw new IllegalArgumentException("unknown tonic \"" + tonic + "\"");
+
+        List<Transformer> chain = new ArrayList<>();
+        for (Object name : list(req, "chain")) {
+            if (!(name instanceof String)) throw new IllegalArgumentException("chain entries must be strings");
+            chain.add(TransformerRegistry.getTransformer(
+                Names.resolve("transformer", (String) name, TransformerRegistry.getAvailableTransformers())));
+        }
+
+        boolean vl = false, dodeca = false;
+        for (Object p : list(req, "post")) {
+            if ("vl".equals(p))          vl = true;
+            else if ("dodeca".equals(p)) dodeca = true;
+            else throw new IllegalArgumentException("unknown post-processor " + p);
+        }
+        return pipeline.transform(raw, tonic, chain, vl, dodeca);
+    }
+
+    // ----- request plumbing --------------------------------------------------
+
+    private void get(HttpExchange ex, java.util.function.Supplier<Object> body) throws IOException {
+        try {
+            if (!"GET".equals(ex.getRequestMethod())) {
+                reply(ex, 405, error("use GET"));
+                return;
+            }
+            reply(ex, 200, body.get());
+        } finally {
+            ex.close();
+        }
+    }
+
+    private void post(String path, Function<Map<String, Object>, Map<String, Object>> op) {
+        LatencyStats st = new LatencyStats();
+        stats.put(path, st);
+        http.createContext(path, ex -> {
+            long t0 = System.nanoTime();
+            try {
+                if (!"POST".equals(ex.getRequestMethod())) {
+                    reply(ex, 405, error("use POST"));
+                    return;
+                }
+                Object parsed;
+                try {
+                    parsed = Json.parse(readBody(ex));
+                } catch (IllegalArgumentException e) {
+                    reply(ex, 400, error(e.getMessage()));
+                    return;
+                }
+                boolean      batch = parsed instanceof List;
+                List<Object> items = batch ? castList(parsed) : Collections.singletonList(parsed);
+                if (items.size() > maxBatch) {
+                    reply(ex, 413, error("batch of " + items.size() + " exceeds " + maxBatch));
+                    return;
+                }
+                if (!capacity.tryAcquire(items.size())) {
+                    st.reject();
+                    ex.getResponseHeaders().set("Retry-After", "1");
+                    reply(ex, 503, error("server busy"));
+                    return;
+                }
+
+                List<Object> results = runAll(items, op);
+                if (batch) {
+                    reply(ex, 200, results);
+                } else {
+                    Object r = results.get(0);
+                    reply(ex, r instanceof Map && ((Map<?, ?>) r).containsKey("error") ? 400 : 200, r);
+                }
+                st.record(System.nanoTime() - t0, items.size());
+            } catch (BodyTooLarge e) {
+                reply(ex, 413, error("request body over " + MAX_BODY + " bytes"));
+            } finally {
+                ex.close();
+            }
+        });
+    }
+
+    /** Runs every item on the workers; the caller holds one permit per item. */
+    private List<Object> runAll(List<Object> items, Function<Map<String, Object>, Map<String, Object>> op) {
+        List<Future<Object>> futures = new ArrayList<>(items.size());
+        int submitted = 0;
+        try {
+            for (Object item : items) {
+                futures.add(workers.submit(() -> {
+                    try {
+                        if (!(item instanceof Map)) throw new IllegalArgumentException("request must be a JSON object");
+                        return op.apply(castMap(item));
+                    } catch (RuntimeException e) {
+                        return error(e.getMessage() != null ? e.getMessage() : e.toString());
+                    } finally {
+                        capacity.release();
+                    }
+                }));
+                submitted++;
+            }
+        } finally {
+            capacity.release(items.size() - submitted);   // e.g. rejected while shutting down
+        }
+
+        List<Object> results = new ArrayList<>(futures.size());
+        for (Future<Object> f : futures) {
+            try {
+                results.add(f.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                results.add(error("interrupted"));
+            } catch (ExecutionException e) {
+                results.add(error(String.valueOf(e.getCause())));
+            }
+        }
+        return results;
+    }
+
+    private static String readBody(HttpExchange ex) throws IOException {
+        try (InputStream in = ex.getRequestBody()) {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            int n;
+            while ((n = in.read(chunk)) > 0) {
+                if (buf.size() + n > MAX_BODY) throw new BodyTooLarge();
+                buf.write(chunk, 0, n);
+            }
+            return new String(buf.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void reply(HttpExchange ex, int status, Object body) throws IOException {
+        byte[] bytes = Json.write(new StringBuilder(), body).toString().getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        ex.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    private static Map<String, Object> error(String message) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("error", message);
+        return m;
+    }
+
+    private static final class BodyTooLarge extends IOException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    // ----- JSON field access -------------------------------------------------
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> castMap(Object o) {
+        return (Map<String, Object>) o;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> castList(Object o) {
+        return (List<Object>) o;
+    }
+
+    private static String string(Map<String, Object> req, String key) {
+        Object v = req.get(key);
+        if (!(v instanceof String)) throw new IllegalArgumentException("\"" + key + "\" must be a string");
+        return (String) v;
+    }
+
+    private static long number(Map<String, Object> req, String key) {
+        Object v = req.get(key);
+        if (!(v instanceof Long)) throw new IllegalArgumentException("\"" + key + "\" must be an integer");
+        return (Long) v;
+    }
+
+    private static List<Object> list(Map<String, Object> req, String key) {
+        Object v = req.get(key);
+        if (v == null) return Collections.emptyList();
+        if (!(v instanceof List)) throw new IllegalArgumentException("\"" + key + "\" must be an array");
+        return castList(v);
+    }
+
+    private static int[][] grid(Object v, String key) {
+        if (!(v instanceof List)) throw new IllegalArgumentException("\"" + key + "\" must be an array of arrays");
+        List<Object> rows = castList(v);
+        int[][]      out  = new int[rows.size()][];
+        for (int i = 0; i < out.length; i++) {
+            Object r = rows.get(i);
+            if (!(r instanceof List)) throw new IllegalArgumentException("\"" + key + "\" must be an array of arrays");
+            List<Object> row = castList(r);
+            out[i] = new int[row.size()];
+            for (int j = 0; j < out[i].length; j++) {
+                Object x = row.get(j);
+                if (!(x instanceof Long) || (Long) x != ((Long) x).intValue()) {
+                    throw new IllegalArgumentException("\"" + key + "\" values must be integers");
+                }
+                out[i][j] = ((Long) x).intValue();
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Usage: CadenceServer [--port n] [--threads n] [--queue n] [--max-batch n]
+     */
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        int port     = 8080;
+        int threads  = Runtime.getRuntime().availableProcessors();
+        int queue    = threads * 64;
+        int maxBatch = 256;
+        for (int i = 0; i < args.length; i += 2) {
+            int v = Integer.parseInt(argument(args, i + 1));
+            switch (args[i]) {
+                case "--port":      port     = v; break;
+                case "--threads":   threads  = v; break;
+                case "--queue":     queue    = v; break;
+                case "--max-batch": maxBatch = v; break;
+                default: throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+        CadenceServer server = new CadenceServer(port, threads, queue, maxBatch);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        server.start();
+        System.err.println("Listening on http://127.0.0.1:" + server.port()
+                           + " (" + threads + " workers, capacity " + server.maxItems + " items)");
+    }
+
+    /** The value after an option; shared with {@link LoadTest}. */
+    static String argument(String[] args, int i) {
+        if (i >= args.length) throw new IllegalArgumentException(args[i - 1] + " needs a value");
+        return args[i];
+    }
+}
@@ -0,0 +1,250 @@
+package com.music.server;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Just enough JSON for the service: objects become LinkedHashMaps, arrays
+ * ArrayLists, numbers Long or Double, plus String, Boolean and null.
+ */
+final class Json {
+
+    /** Deepest nesting of arrays and objects accepted; requests need about four. */
+    static final int MAX_DEPTH = 64;
+
+    private final String src;
+    private int pos;
+    private int depth;
+
+    private Json(String src) {
+        this.src = src;
+    }
+
+    /**
+     * @throws IllegalArgumentException on malformed input, or nesting deeper than {@link #MAX_DEPTH}
+     */
+    static Object parse(String text) {
+        Json p = new Json(text);
+        p.skipSpace();
+        Object v = p.value();
+        p.skipSpace();
+        if (p.pos != text.length()) throw p.error("trailing characters");
+        return v;
+    }
+
+    // ----- reading -----------------------------------------------------------
+
+    private Object value() {
+        if (pos >= src.length()) throw error("unexpected end of input");
+        char c = src.charAt(pos);
+        switch (c) {
+            case '{': return nested(true);
+            case '[': return nested(false);
+            case '"': return string();
+            case 't': return literal("true",  Boolean.TRUE);
+            case 'f': return literal("false", Boolean.FALSE);
+            case 'n': return literal("null",  null);
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) return number();
+                throw error("unexpected '" + c + "'");
+        }
+    }
+
+    /** An object or array, one level deeper; bounded so hostile input cannot overflow the stack. */
+    private Object nested(boolean object) {
+        if (++depth > MAX_DEPTH) throw error("nested deeper than " + MAX_DEPTH);
+        Object v = object ? object() : array();
+        depth--;
+        return v;
+    }
+
+    private Map<String, Object> object() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        pos++;
+        skipSpace();
+        if (peek('}')) return map;
+        while (true) {
+            skipSpace();
+            if (pos >= src.length() || src.charAt(pos) != '"') throw error("expected a key");
+            String key = string();
+            skipSpace();
+            expect(':');
+            skipSpace();
+            map.put(key, value());
+            skipSpace();
+            if (peek('}')) return map;
+            expect(',');
+        }
+    }
+
+    private List<Object> array() {
+        List<Object> list = new ArrayList<>();
+        pos++;
+        skipSpace();
+        if (peek(']')) return list;
+        while (true) {
+            skipSpace();
+            list.add(value());
+            skipSpace();
+            if (peek(']')) return list;
+            expect(',');
+        }
+    }
+
+    private String string() {
+        StringBuilder sb = new StringBuilder();
+        pos++;
+        while (pos < src.length()) {
+            char c = src.charAt(pos++);
+            if (c == '"') return sb.toString();
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (pos >= src.length()) break;
+            char e = src.charAt(pos++);
+            switch (e) {
+                case 'n': sb.append('\n'); break;
+                case 't': sb.append('\t'); break;
+                case 'r': sb.append('\r'); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'u':
+                    if (pos + 4 > src.length()) throw error("bad \\u escape");
+                    try {
+                        sb.append((char) Integer.parseInt(src.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException ex) {
+                        throw error("bad \\u escape");
+                    }
+                    pos += 4;
+                    break;
+                default:  sb.append(e);
+            }
+        }
+        throw error("unterminated string");
+    }
+
+    private Number number() {
+        int start = pos;
+        if (src.charAt(pos) == '-') pos++;
+        boolean fraction = false;
+        while (pos < src.length()) {
+            char c = src.charAt(pos);
+            if (c >= '0' && c <= '9') {
+                pos++;
+            } else if (c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                fraction = true;
+                pos++;
+            } else {
+                break;
+            }
+        }
+        String s = src.substring(start, pos);
+        try {
+            return fraction ? (Number) Double.parseDouble(s) : (Number) Long.parseLong(s);
+        } catch (NumberFormatException e) {
+            throw error("bad number " + s);
+        }
+    }
+
+    private Object literal(String word, Object value) {
+        if (!src.startsWith(word, pos)) throw error("unexpected token");
+        pos += word.length();
+        return value;
+    }
+
+    private boolean peek(char c) {
+        if (pos < src.length() && src.charAt(pos) == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) {
+        if (!peek(c)) throw error("expected '" + c + "'");
+    }
+
+    private void skipSpace() {
+        while (pos < src.length() && Character.isWhitespace(src.charAt(pos))) pos++;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("JSON: " + message + " at offset " + pos);
+    }
+
+    // ----- writing -----------------------------------------------------------
+
+    /**
+     * Appends {@code v}: Map, Iterable, int[], int[][], String, Number,
+     * Boolean or null.
+     */
+    static StringBuilder write(StringBuilder sb, Object v) {
+        if (v == null) {
+            sb.append("null");
+        } else if (v instanceof String) {
+            quote(sb, (String) v);
+        } else if (v instanceof Number || v instanceof Boolean) {
+            sb.append(v);
+        } else if (v instanceof int[]) {
+            int[] a = (int[]) v;
+            sb.append('[');
+            for (int i = 0; i < a.length; i++) {
+                if (i > 0) sb.append(',');
+                sb.append(a[i]);
+            }
+            sb.append(']');
+        } else if (v instanceof int[][]) {
+            int[][] g = (int[][]) v;
+            sb.append('[');
+            for (int i = 0; i < g.length; i++) {
+                if (i > 0) sb.append(',');
+                write(sb, g[i]);
+            }
+            sb.append(']');
+        } else if (v instanceof Map) {
+            sb.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) v).entrySet()) {
+                if (!first) sb.append(',');
+                first = false;
+                quote(sb, String.valueOf(e.getKey()));
+                sb.append(':');
+                write(sb, e.getValue());
+            }
+            sb.append('}');
+        } else if (v instanceof Iterable) {
+            sb.append('[');
+            boolean first = true;
+            for (Object o : (Iterable<?>) v) {
+                if (!first) sb.append(',');
+                first = false;
+                write(sb, o);
+            }
+            sb.append(']');
+        } else {
+            throw new IllegalArgumentException("cannot write " + v.getClass().getName() + " as JSON");
+        }
+        return sb;
+    }
+
+    private static void quote(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':  sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n");  break;
+                case '\r': sb.append("\\r");  break;
+                case '\t': sb.append("\\t");  break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else          sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,65 @@
+package com.music.server;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Request latencies for one endpoint. Keeps the most recent samples in a
+ * fixed ring so memory stays flat under sustained load; percentiles are
+ * computed over that window when asked for.
+ */
+final class LatencyStats {
+
+    private static final int WINDOW = 1 << 14;
+
+    private final long[] samples = new long[WINDOW];
+    private long count;
+    private long items;
+    private long rejected;
+    private long maxNanos;
+
+    synchronized void record(long nanos, int batchItems) {
+        samples[(int) (count % WINDOW)] = nanos;
+        count++;
+        items += batchItems;
+        if (nanos > maxNanos) maxNanos = nanos;
+    }
+
+    synchronized void reject() {
+        rejected++;
+    }
+
+    /** Totals plus p50/p99 over the recent window, in milliseconds. */
+    Map<String, Object> snapshot() {
+        long[] window;
+        long   n, it, rej, max;
+        synchronized (this) {
+            n      = count;
+            it     = items;
+            rej    = rejected;
+            max    = maxNanos;
+            window = Arrays.copyOf(samples, (int) Math.min(n, WINDOW));
+        }
+        Arrays.sort(window);
+
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("requests", n);
+        m.put("items",    it);
+        m.put("rejected", rej);
+        m.put("p50Ms",    millis(percentile(window, 0.50)));
+        m.put("p99Ms",    millis(percentile(window, 0.99)));
+        m.put("maxMs",    millis(max));
+        return m;
+    }
+
+    static long percentile(long[] sorted, double q) {
+        if (sorted.length == 0) return 0;
+        int i = (int) Math.ceil(q * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(i, sorted.length - 1))];
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1e3) / 1e3;
+    }
+}
@@ -0,0 +1,158 @@
+package com.music.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load generator for a running {@link CadenceServer}: each client
+ * thread posts a request, waits for the reply, and posts the next one.
+ * Refused requests (503) and connections the server closed unanswered are
+ * counted and retried after a short pause rather than timed, so the
+ * percentiles describe served requests only.
+ *
+ * Usage: LoadTest [--url http://127.0.0.1:8080] [--endpoint /harmonize]
+ *                 [--clients n] [--requests n] [--batch n]
+ * With --url local an in-process server on a free port is started first.
+ */
+public class LoadTest {
+
+    private static final int MAX_RETRIES = 1000;   // per request, before it counts as failed
+
+    private static final String[] CADENCES = {
+        "ii-V-I (Maj)", "IV-V-I (Maj)", "ii-V-I (Min)", "Deceptive", "I-vi-ii-V"
+    };
+
+    public static void main(String[] args) throws Exception {
+        String url      = "http://127.0.0.1:8080";
+        String endpoint = "/harmonize";
+        int    clients  = 8;
+        int    requests = 2000;
+        int    batch    = 1;
+        for (int i = 0; i < args.length; i += 2) {
+            String v = CadenceServer.argument(args, i + 1);
+            switch (args[i]) {
+                case "--url":      url      = v;                    break;
+                case "--endpoint": endpoint = v;                    break;
+                case "--clients":  clients  = Integer.parseInt(v); break;
+                case "--requests": requests = Integer.parseInt(v); break;
+                case "--batch":    batch    = Integer.parseInt(v); break;
+                default: throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+
+        CadenceServer local = null;
+        if ("local".equals(url)) {
+            System.setProperty("java.awt.headless", "true");
+            int threads = Runtime.getRuntime().availableProcessors();
+            local = new CadenceServer(0, threads, threads * 64, 256);
+            local.start();
+            url = "http://127.0.0.1:" + local.port();
+        }
+
+        try {
+            run(new URL(url + endpoint), clients, requests, batch);
+        } finally {
+            if (local != null) local.stop();
+        }
+    }
+
+    private static void run(URL target, int clients, int requests, int batch) throws InterruptedException {
+        long[]     latencies = new long[requests];
+        AtomicLong next      = new AtomicLong();
+        AtomicLong refused   = new AtomicLong();
+        AtomicLong dropped   = new AtomicLong();
+        AtomicLong failed    = new AtomicLong();
+
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        long t0 = System.nanoTime();
+        for (int c = 0; c < clients; c++) {
+            pool.execute(() -> {
+                long i;
+                while ((i = next.getAndIncrement()) < requests) {
+                    byte[] body = body(i, batch);
+                    for (int attempt = 1; ; attempt++) {
+                        long start = System.nanoTime();
+                        int  status;
+                        try {
+                            status = post(target, body);
+                        } catch (IOException e) {
+                            status = -1;
+                        }
+                        if ((status == 503 || status == -1) && attempt < MAX_RETRIES) {
+                            (status == 503 ? refused : dropped).incrementAndGet();
+                            pause();
+                            continue;
+                        }
+                        if (status != 200) failed.incrementAndGet();
+                        latencies[(int) i] = System.nanoTime() - start;
+                        break;
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.DAYS);
+        double seconds = (System.nanoTime() - t0) / 1e9;
+
+        Arrays.sort(latencies);
+        System.out.printf("%s: %d requests x %d items, %d clients%n", target, requests, batch, clients);
+        System.out.printf("  %.1f requests/s, %.1f items/s%n", requests / seconds, (double) requests * batch / seconds);
+        System.out.printf("  p50 %.3f ms  p99 %.3f ms  max %.3f ms%n",
+                          LatencyStats.percentile(latencies, 0.50) / 1e6,
+                          LatencyStats.percentile(latencies, 0.99) / 1e6,
+                          latencies[latencies.length - 1] / 1e6);
+        System.out.printf("  %d refused, %d dropped (both retried), %d failed%n",
+                          refused.get(), dropped.get(), failed.get());
+    }
+
+    /** One request, or a batch of them, cycling through cadences and seeds. */
+    private static byte[] body(long n, int batch) {
+        List<String> items = new ArrayList<>(batch);
+        for (int k = 0; k < batch; k++) {
+            long i = n * batch + k;
+            items.add("{\"cadence\":\"" + CADENCES[(int) (i % CADENCES.length)] + "\","
+                      + "\"tonic\":\"" + (i % 2 == 0 ? "C" : "Eb") + "\","
+                      + "\"chain\":[\"Retrograde\"],\"post\":[\"vl\"],"
+                      + "\"seed\":" + i + "}");
+        }
+        String json = batch == 1 ? items.get(0) : "[" + String.join(",", items) + "]";
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int post(URL target, byte[] body) throws IOException {
+        HttpURLConnection con = (HttpURLConnection) target.openConnection();
+        con.setRequestMethod("POST");
+        con.setDoOutput(true);
+        con.setFixedLengthStreamingMode(body.length);
+        con.setRequestProperty("Content-Type", "application/json");
+        try (OutputStream os = con.getOutputStream()) {
+            os.write(body);
+        }
+        int status = con.getResponseCode();
+        // drain so the keep-alive connection is reused
+        try (InputStream in = status < 400 ? con.getInputStream() : con.getErrorStream()) {
+            if (in != null) in.transferTo(new ByteArrayOutputStream());
+        }
+        return status;
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
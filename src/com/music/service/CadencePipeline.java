@@ -0,0 +1,53 @@
+package com.music.service;
+
+import com.music.arrange.Harmonizer;
+import com.music.domain.Cadence;
+import com.music.transform.ChainCompiler;
+import com.music.transform.TransformCache;
+import com.music.transform.Transformer;
+import com.music.transform.impl.DodecafonizeTransformer;
+import com.music.transform.impl.TransposeToTonicTransformer;
+import com.music.transform.impl.VoiceLeadingOptimizerTransformer;
+
+import java.util.List;
+
+/**
+ * The Apply pipeline without the UI: tonic shift, transformer chain,
+ * post-processors (voice leading first, then dodecafonize), harmonization.
+ * The chain runs compiled by {@link ChainCompiler}, so inverse pairs cancel
+ * and element-wise and reordering stages share one pass; a fused pass keeps
+ * its input's type and is described as "Fused". Deterministic stages, the
+ * compiled chain included, go through a shared {@link TransformCache}; an
+ * instance is safe to use from many threads.
+ */
+public class CadencePipeline {
+
+    private final TransformCache cache;
+
+    public CadencePipeline(TransformCache cache) {
+        this.cache = cache;
+    }
+
+    public TransformCache cache() {
+        return cache;
+    }
+
+    /**
+     * Raw C-based intervals → transformed semitone grid.
+     */
+    public Cadence transform(Cadence raw, String tonic, List<? extends Transformer> chain,
+                             boolean voiceLeading, boolean dodecafonize) {
+        Cadence c = cache.transform(new TransposeToTonicTransformer(tonic), raw);
+        if (!chain.isEmpty()) c = cache.transform(ChainCompiler.compile(chain), c);
+        if (voiceLeading) c = cache.transform(new VoiceLeadingOptimizerTransformer(), c);
+        if (dodecafonize) c = cache.transform(new DodecafonizeTransformer(), c);
+        return c;
+    }
+
+    /**
+     * Semitone grid → absolute MIDI SATB voicings, reproducible for a given seed.
+     */
+    public Cadence harmonize(Cadence semis, long seed) {
+        return new Harmonizer(seed).transform(semis);
+    }
+}
@@ -1,27 +1,326 @@
 package com.music.service;
 
 import com.music.domain.Cadence;
-import javax.sound.midi.MidiChannel;
+
+import javax.sound.midi.Receiver;
+import javax.sound.midi.ShortMessage;
 import javax.sound.midi.Synthesizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * Plays a Cadence of absolute MIDI numbers—no octave math here.
+ * Plays Cadences of absolute MIDI numbers—no octave math here.
+ *
+ * One dispatcher thread serves every playback. Each chord has an absolute
+ * deadline (origin + k·60 s/bpm, computed in nanoseconds so nothing drifts
+ * or rounds); the dispatcher wakes {@link #LOOKAHEAD_NANOS} early and hands
+ * the chord's note-offs and note-ons to the synthesizer's {@link Receiver}
+ * stamped with the matching synthesizer time, so a synth that honours
+ * timestamps (the JDK's does) starts them on the exact sample. Only that
+ * short window is ever queued in the synth, which keeps stop and seek
+ * immediate. How late each hand-over ran is kept per playback as jitter.
+ *
+ * Every playback leases its own channel from a {@link SynthPool}, so
+ * overlapping playbacks never cut off each other's notes or programs; the
+ * channel goes back to the pool when the playback ends or is stopped.
  */
-public class JavaxMidiPlayer {
+public class JavaxMidiPlayer implements AutoCloseable {
+
+    static final long LOOKAHEAD_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final int VELOCITY = 100;
+
+    private final SynthPool pool;
 
-    public static void play(Cadence c,
-                            Synthesizer synth,
-                            int bank,
-                            int program,
-                            int bpm) throws InterruptedException {
-        MidiChannel ch = synth.getChannels()[0];
-        ch.programChange(bank, program);
-        int ms = 60000 / bpm;
+    private final ReentrantLock  lock    = new ReentrantLock();
+    private final Condition      changed = lock.newCondition();
+    private final List<Playback> active  = new ArrayList<>();
+    private final Thread         dispatcher;
+    private boolean closed;
+
+    public JavaxMidiPlayer(SynthPool pool) {
+        this.pool = pool;
+        dispatcher = new Thread(this::dispatch, "midi-playback");
+        dispatcher.setDaemon(true);
+        dispatcher.setPriority(Thread.MAX_PRIORITY);
+        dispatcher.start();
+    }
+
+    /**
+     * Starts playing {@code c} one chord per beat and returns once a channel
+     * is free, which is at once unless the pool is fully leased.
+     */
+    public Playback play(Cadence c, int bank, int program, int bpm) throws InterruptedException {
+        checkArguments(c, bank, program, bpm);
+        return start(c, pool.acquire(bank, program), bpm);
+    }
 
+    /**
+     * As {@link #play}, but returns null at once instead of waiting when
+     * every channel of the pool is in use, so it is safe on the EDT.
+     */
+    public Playback tryPlay(Cadence c, int bank, int program, int bpm) {
+        checkArguments(c, bank, program, bpm);
+        SynthPool.Lease lease = pool.tryAcquire(bank, program);
+        return lease == null ? null : start(c, lease, bpm);
+    }
+
+    private static void checkArguments(Cadence c, int bank, int program, int bpm) {
+        MidiExporter.checkArguments(bpm, bank, program);
         for (int[] chord : c.intervals()) {
-            for (int m : chord)        ch.noteOn(m, 100);
-            Thread.sleep(ms);
-            for (int m : chord)        ch.noteOff(m);
+            for (int m : chord) {
+                if (m < 0 || m > 127) throw new IllegalArgumentException("Invalid MIDI note: " + m);
+            }
+        }
+    }
+
+    private Playback start(Cadence c, SynthPool.Lease lease, int bpm) {
+        lock.lock();
+        try {
+            if (closed) {
+                lease.close();
+                throw new IllegalStateException("player closed");
+            }
+            Playback p = new Playback(c.intervals(), lease, 60_000_000_000L / bpm, 60_000_000_000L % bpm, bpm);
+            p.startAt(0, System.nanoTime() + LOOKAHEAD_NANOS);
+            active.add(p);
+            changed.signal();
+            return p;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Plays {@code c} and waits until it has finished.
+     */
+    public void playAndWait(Cadence c, int bank, int program, int bpm) throws InterruptedException {
+        play(c, bank, program, bpm).await();
+    }
+
+    public void stopAll() {
+        lock.lock();
+        try {
+            for (Playback p : new ArrayList<>(active)) p.stop();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        stopAll();
+        lock.lock();
+        try {
+            closed = true;
+            // playbacks still ringing out their last chord
+            for (Playback p : new ArrayList<>(active)) finish(p);
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ----- dispatcher --------------------------------------------------------
+
+    private void dispatch() {
+        lock.lock();
+        try {
+            while (!closed) {
+                long now  = System.nanoTime();
+                long wake = Long.MAX_VALUE;
+                for (int i = 0; i < active.size(); i++) {
+                    Playback p = active.get(i);
+                    while (!p.done && p.deadline(p.step) - LOOKAHEAD_NANOS <= now) {
+                        p.fire(now);
+                    }
+                    if (!p.done) {
+                        wake = Math.min(wake, p.deadline(p.step) - LOOKAHEAD_NANOS);
+                    } else if (now >= p.end()) {
+                        finish(p);
+                        i--;
+                    } else {
+                        // the last note-offs are still queued ahead; closing the
+                        // lease now would silence the final chord early
+                        wake = Math.min(wake, p.end());
+                    }
+                }
+                if (wake == Long.MAX_VALUE) changed.await();
+                else                        changed.awaitNanos(wake - System.nanoTime());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void finish(Playback p) {
+        active.remove(p);
+        p.finished = true;
+        p.lease.close();
+        p.doneSignal.signalAll();
+    }
+
+    /** Synthesizer time (µs) for a System.nanoTime() instant, or -1 to play at once. */
+    private static long synthMicros(Synthesizer synth, long nanos) {
+        long pos = synth.getMicrosecondPosition();
+        if (pos < 0) return -1;
+        return pos + Math.max(0, (nanos - System.nanoTime()) / 1000);
+    }
+
+    /**
+     * Handle on one running cadence. Step k releases chord k-1 and sounds
+     * chord k; the step after the last chord only releases.
+     */
+    public final class Playback {
+
+        private final int[][]         grid;
+        private final SynthPool.Lease lease;
+        private final long    beatNanos;
+        private final long    remainder;   // 60e9 % bpm, so k·beat is exact
+        private final int     bpm;
+        private final Condition doneSignal = lock.newCondition();
+
+        private long    origin;
+        private int     step;
+        private int     current;   // chord most recently sounded or sought
+        private boolean done;
+        private boolean finished;   // lease returned
+
+        private long firedEvents;
+        private long totalLate;
+        private long maxLate;
+
+        private Playback(int[][] grid, SynthPool.Lease lease, long beatNanos, long remainder, int bpm) {
+            this.grid      = grid;
+            this.lease     = lease;
+            this.beatNanos = beatNanos;
+            this.remainder = remainder;
+            this.bpm       = bpm;
+        }
+
+        private long deadline(int k) {
+            return origin + k * beatNanos + k * remainder / bpm;
+        }
+
+        /** When the last chord's note-offs act; the lease is kept until then. */
+        private long end() {
+            return deadline(grid.length);
+        }
+
+        private void startAt(int k, long originOfK) {
+            step    = k;
+            current = k;
+            origin  = originOfK - (deadline(k) - origin);
+        }
+
+        private void fire(long now) {
+            long due  = deadline(step);
+            long late = Math.max(0, now - (due - LOOKAHEAD_NANOS));
+            long ts   = synthMicros(lease.synth(), due);
+            if (step > 0) {
+                for (int m : grid[step - 1]) lease.send(ShortMessage.NOTE_OFF, m, 0, ts);
+            }
+            if (step < grid.length) {
+                for (int m : grid[step]) lease.send(ShortMessage.NOTE_ON, m, VELOCITY, ts);
+            }
+            current = step;
+            firedEvents++;
+            totalLate += late;
+            maxLate    = Math.max(maxLate, late);
+            if (++step > grid.length) done = true;
+        }
+
+        /** Silences what is sounding now. */
+        private void release() {
+            if (step > 0 && step <= grid.length) {
+                for (int m : grid[step - 1]) lease.send(ShortMessage.NOTE_OFF, m, 0, -1);
+            }
+        }
+
+        /**
+         * Stops at once, releasing sounding notes.
+         */
+        public void stop() {
+            lock.lock();
+            try {
+                if (done) return;
+                release();
+                done = true;
+                finish(this);
+                changed.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Continues from chord {@code chord}, which sounds right away.
+         */
+        public void seek(int chord) {
+            if (chord < 0 || chord > grid.length) throw new IndexOutOfBoundsException("chord " + chord);
+            lock.lock();
+            try {
+                if (done) return;
+                release();
+                startAt(chord, System.nanoTime() + LOOKAHEAD_NANOS);
+                changed.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /** Index of the chord sounding (or about to), grid length once finished. */
+        public int position() {
+            lock.lock();
+            try {
+                return Math.min(current, grid.length);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public boolean isDone() {
+            lock.lock();
+            try {
+                return done;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /** Waits until the playback has ended and its channel is back in the pool. */
+        public void await() throws InterruptedException {
+            lock.lock();
+            try {
+                while (!finished) doneSignal.await();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /** Largest delay between a chord's scheduled hand-over and the actual one, in µs. */
+        public long maxJitterMicros() {
+            lock.lock();
+            try {
+                return maxLate / 1000;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /** Mean of that delay over the chords handed over so far, in µs. */
+        public long meanJitterMicros() {
+            lock.lock();
+            try {
+                return firedEvents == 0 ? 0 : totalLate / firedEvents / 1000;
+            } finally {
+                lock.unlock();
+            }
         }
     }
 }
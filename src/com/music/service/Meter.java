@@ -0,0 +1,72 @@
+package com.music.service;
+
+/**
+ * Time signature for score export. Every chord takes one beat, so a measure
+ * holds {@code beats} chords written as {@code beatType} notes (quarters in
+ * 3/4, eighths in 6/8).
+ */
+public final class Meter {
+
+    public static final Meter COMMON = new Meter(4, 4);
+
+    private static final String[] TYPES = { "whole", "half", "quarter", "eighth", "16th", "32nd" };
+
+    public final int beats;
+    public final int beatType;
+
+    /**
+     * @throws IllegalArgumentException unless beats is 1..64 and beatType a power of two up to 32
+     */
+    public Meter(int beats, int beatType) {
+        if (beats < 1 || beats > 64) throw new IllegalArgumentException("beats must be 1..64");
+        if (beatType < 1 || beatType > 32 || Integer.bitCount(beatType) != 1) {
+            throw new IllegalArgumentException("beat type must be 1, 2, 4, 8, 16 or 32");
+        }
+        this.beats    = beats;
+        this.beatType = beatType;
+    }
+
+    /**
+     * Parses "3/4", "6/8" and the like.
+     */
+    public static Meter parse(String s) {
+        int slash = s.indexOf('/');
+        if (slash < 0) throw new IllegalArgumentException("meter must look like 3/4, got \"" + s + "\"");
+        try {
+            return new Meter(Integer.parseInt(s.substring(0, slash).trim()),
+                             Integer.parseInt(s.substring(slash + 1).trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("meter must look like 3/4, got \"" + s + "\"");
+        }
+    }
+
+    /** MusicXML divisions per quarter note: enough to express one beat as a whole number. */
+    int divisions() {
+        return Math.max(1, beatType / 4);
+    }
+
+    /** Length of one beat in divisions. */
+    int beatDuration() {
+        return 4 * divisions() / beatType;
+    }
+
+    /** MusicXML note type of one beat. */
+    String beatUnit() {
+        return TYPES[Integer.numberOfTrailingZeros(beatType)];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Meter && ((Meter) o).beats == beats && ((Meter) o).beatType == beatType;
+    }
+
+    @Override
+    public int hashCode() {
+        return beats * 64 + beatType;
+    }
+
+    @Override
+    public String toString() {
+        return beats + "/" + beatType;
+    }
+}
@@ -0,0 +1,120 @@
+package com.music.service;
+
+import com.music.domain.Cadence;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Track;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes a Cadence of ABSOLUTE MIDI pitches as a Standard MIDI File,
+ * one chord per quarter note, with the tempo stored in the file.
+ * Needs no synthesizer or sound device.
+ *
+ * The file is type 1: a conductor track with the tempo, then one track per
+ * voice (column of the grid) on its own channel, each starting with a bank
+ * select and program change. Channel 9 (percussion) is skipped.
+ * {@link SmfWriter} produces the same bytes without building a Sequence.
+ */
+public class MidiExporter {
+
+    public static final int PPQ = 480;
+
+    /** Tempi whose 60e6/bpm µs per beat fits Set Tempo's 24 bits without becoming 0. */
+    public static final int MIN_BPM = 4;
+    public static final int MAX_BPM = 60_000_000;
+
+    static final int VELOCITY = 100;
+
+    /**
+     * Acoustic grand piano, bank 0.
+     */
+    public static Sequence toSequence(Cadence midiCad, int bpm) throws InvalidMidiDataException {
+        return toSequence(midiCad, bpm, 0, 0);
+    }
+
+    /**
+     * Builds the conductor track and one track per voice.
+     *
+     * @param bank    14-bit bank number, as from {@link javax.sound.midi.Patch#getBank()}
+     * @param program General MIDI program, 0-127
+     */
+    public static Sequence toSequence(Cadence midiCad, int bpm, int bank, int program)
+            throws InvalidMidiDataException {
+        checkArguments(bpm, bank, program);
+        int[][]  grid = midiCad.intervals();
+        Sequence seq  = new Sequence(Sequence.PPQ, PPQ);
+
+        Track conductor = seq.createTrack();
+        conductor.add(new MidiEvent(new MetaMessage(0x51, tempo(bpm), 3), 0));
+
+        for (int v = 0, voices = voices(grid); v < voices; v++) {
+            int   ch    = channel(v);
+            Track track = seq.createTrack();
+            track.add(new MidiEvent(new ShortMessage(ShortMessage.CONTROL_CHANGE, ch, 0,  bank >> 7),   0));
+            track.add(new MidiEvent(new ShortMessage(ShortMessage.CONTROL_CHANGE, ch, 32, bank & 0x7F), 0));
+            track.add(new MidiEvent(new ShortMessage(ShortMessage.PROGRAM_CHANGE, ch, program, 0),      0));
+
+            long tick = 0;
+            for (int[] chord : grid) {
+                if (v < chord.length) {
+                    track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_ON,  ch, chord[v], VELOCITY), tick));
+                    track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_OFF, ch, chord[v], 0),        tick + PPQ));
+                }
+                tick += PPQ;
+            }
+        }
+        return seq;
+    }
+
+    /**
+     * Writes {@code midiCad} as a piano MIDI file to {@code out}.
+     */
+    public static void write(Cadence midiCad, int bpm, OutputStream out) throws IOException {
+        write(midiCad, bpm, 0, 0, out);
+    }
+
+    /**
+     * Writes {@code midiCad} as a type-1 MIDI file to {@code out} through
+     * {@link MidiSystem#write}.
+     */
+    public static void write(Cadence midiCad, int bpm, int bank, int program, OutputStream out) throws IOException {
+        try {
+            MidiSystem.write(toSequence(midiCad, bpm, bank, program), 1, out);
+        } catch (InvalidMidiDataException e) {
+            throw new IOException("Cannot encode cadence as MIDI: " + e.getMessage(), e);
+        }
+    }
+
+    static void checkArguments(int bpm, int bank, int program) {
+        if (bpm < MIN_BPM || bpm > MAX_BPM) {
+            throw new IllegalArgumentException("bpm must be " + MIN_BPM + "-" + MAX_BPM);
+        }
+        if (bank < 0 || bank > 0x3FFF) throw new IllegalArgumentException("bank must be 0-16383");
+        if (program < 0 || program > 127) throw new IllegalArgumentException("program must be 0-127");
+    }
+
+    /** Set Tempo payload: microseconds per quarter note, 24-bit big-endian. */
+    static byte[] tempo(int bpm) {
+        int usPerBeat = 60_000_000 / bpm;
+        return new byte[] { (byte) (usPerBeat >>> 16), (byte) (usPerBeat >>> 8), (byte) usPerBeat };
+    }
+
+    /** Widest chord. */
+    static int voices(int[][] grid) {
+        int voices = 0;
+        for (int[] chord : grid) voices = Math.max(voices, chord.length);
+        return voices;
+    }
+
+    /** Channel of voice {@code v}: 0-8, then 10-15, skipping percussion; extra voices share 15. */
+    static int channel(int v) {
+        return v < 9 ? v : Math.min(v + 1, 15);
+    }
+}
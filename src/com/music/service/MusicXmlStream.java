@@ -0,0 +1,170 @@
+package com.music.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fixed-size output buffer behind {@link ScoreRenderer}'s streaming export.
+ *
+ * Every constant piece of markup is encoded to bytes once, at class load,
+ * and the pieces that depend on the meter once per document. Only pitches,
+ * octaves and numbers vary, and those are written digit by digit. The
+ * document is pure ASCII, so the same bytes serve an {@link OutputStream}
+ * (as UTF-8) and a {@link Writer} (one char per byte). Nothing is allocated per note.
+ */
+final class MusicXmlStream {
+
+    static final byte[] SCORE_HEAD = ascii(
+          "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<score-partwise version=\"3.1\">\n"
+        + "  <part-list>\n"
+        + "    <score-part id=\"P1\"><part-name>Piano</part-name></score-part>\n"
+        + "  </part-list>\n"
+        + "  <part id=\"P1\">\n");
+    static final byte[] MEASURE     = ascii("    <measure number=\"");
+    static final byte[] MEASURE_TAG = ascii("\">\n");
+    static final byte[] DIVISIONS   = ascii(
+          "      <attributes>\n"
+        + "        <divisions>");
+    static final byte[] BEATS = ascii(
+          "</divisions>\n"
+        + "        <staves>2</staves>\n"
+        + "        <key><fifths>0</fifths></key>\n"
+        + "        <time><beats>");
+    static final byte[] BEAT_TYPE = ascii("</beats><beat-type>");
+    static final byte[] BEAT_UNIT = ascii(
+          "</beat-type></time>\n"
+        + "        <clef number=\"1\"><sign>G</sign><line>2</line></clef>\n"
+        + "        <clef number=\"2\"><sign>F</sign><line>4</line></clef>\n"
+        + "      </attributes>\n"
+        + "      <direction>\n"
+        + "        <direction-type><metronome>\n"
+        + "          <beat-unit>");
+    static final byte[] PER_MINUTE = ascii("</beat-unit>\n          <per-minute>");
+    static final byte[] HEAD_END = ascii(
+          "</per-minute>\n"
+        + "        </metronome></direction-type>\n"
+        + "      </direction>\n");
+    static final byte[] BACKUP      = ascii("      <backup><duration>");
+    static final byte[] BACKUP_END  = ascii("</duration></backup>\n");
+    static final byte[] MEASURE_END = ascii("    </measure>\n");
+    static final byte[] TAIL = ascii(
+          "  </part>\n"
+        + "</score-partwise>\n");
+
+    static final byte[] NOTE       = ascii("      <note>\n");
+    static final byte[] CHORD_NOTE = ascii("      <note>\n        <chord/>\n");
+
+    // <pitch>, <step>, optional <alter> and the opening <octave> tag, per pitch class
+    private static final byte[][] PITCH = new byte[12][];
+    static {
+        String[] steps  = { "C", "C", "D", "D", "E", "F", "F", "G", "G", "A", "A", "B" };
+        int[]    alters = {  0,   1,   0,   1,   0,   0,   1,   0,   1,   0,   1,   0  };
+        for (int pc = 0; pc < 12; pc++) {
+            PITCH[pc] = ascii("        <pitch>\n"
+                              + "          <step>" + steps[pc] + "</step>\n"
+                              + (alters[pc] != 0 ? "          <alter>" + alters[pc] + "</alter>\n" : "")
+                              + "          <octave>");
+        }
+    }
+
+    private final OutputStream os;
+    private final Writer       w;
+    private final byte[]       buf = new byte[8192];
+    private final char[]       chars;
+    private int n;
+
+    MusicXmlStream(OutputStream os) {
+        this.os    = os;
+        this.w     = null;
+        this.chars = null;
+    }
+
+    MusicXmlStream(Writer w) {
+        this.os    = null;
+        this.w     = w;
+        this.chars = new char[buf.length];
+    }
+
+    void put(byte[] fragment) throws IOException {
+        if (fragment.length > buf.length - n) flush();
+        System.arraycopy(fragment, 0, buf, n, fragment.length);
+        n += fragment.length;
+    }
+
+    void putInt(int v) throws IOException {
+        if (buf.length - n < 11) flush();
+        long x = v;
+        if (x < 0) {
+            buf[n++] = '-';
+            x = -x;
+        }
+        int start = n;
+        do {
+            buf[n++] = (byte) ('0' + x % 10);
+            x /= 10;
+        } while (x != 0);
+        for (int i = start, j = n - 1; i < j; i++, j--) {
+            byte t = buf[i]; buf[i] = buf[j]; buf[j] = t;
+        }
+    }
+
+    /**
+     * One {@code <note>}; {@code end} carries voice, stem and staff.
+     */
+    void note(int midi, boolean chord, byte[] end) throws IOException {
+        int pc = midi % 12;
+        if (pc < 0) throw new IllegalArgumentException("Invalid MIDI note: " + midi);
+        put(chord ? CHORD_NOTE : NOTE);
+        put(PITCH[pc]);
+        putInt(midi / 12 - 1);
+        put(end);
+    }
+
+    /**
+     * Hands buffered bytes to the target; does not flush the target itself.
+     */
+    void flush() throws IOException {
+        if (n == 0) return;
+        if (os != null) {
+            os.write(buf, 0, n);
+        } else {
+            for (int i = 0; i < n; i++) chars[i] = (char) buf[i];
+            w.write(chars, 0, n);
+        }
+        n = 0;
+    }
+
+    /**
+     * Closes a {@code <note>} after its octave number.
+     */
+    static byte[] noteEnd(int staff, int voice, String stem, int duration, String type) {
+        return ascii("</octave>\n"
+                     + "        </pitch>\n"
+                     + "        <duration>" + duration + "</duration>\n"
+                     + "        <voice>" + voice + "</voice>\n"
+                     + "        <type>" + type + "</type>\n"
+                     + "        <stem>" + stem + "</stem>\n"
+                     + "        <staff>" + staff + "</staff>\n"
+                     + "      </note>\n");
+    }
+
+    /**
+     * A whole {@code <note>} holding a rest.
+     */
+    static byte[] rest(int staff, int voice, int duration, String type) {
+        return ascii("      <note>\n"
+                     + "        <rest/>\n"
+                     + "        <duration>" + duration + "</duration>\n"
+                     + "        <voice>" + voice + "</voice>\n"
+                     + "        <type>" + type + "</type>\n"
+                     + "        <staff>" + staff + "</staff>\n"
+                     + "      </note>\n");
+    }
+
+    static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,125 @@
+package com.music.service;
+
+import com.music.domain.Cadence;
+
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Compressed MusicXML (.mxl): a zip holding an uncompressed {@code mimetype}
+ * entry, one deflated {@code .musicxml} entry per score and
+ * {@code META-INF/container.xml} listing them.
+ *
+ * Scores are rendered straight into the deflater by {@link ScoreRenderer},
+ * so nothing is held in memory but the grid being written. One writer can
+ * take any number of scores, which makes it an archive for batch runs; the
+ * first score added is the one notation programs open. {@link #add} may be
+ * called from several threads; entries are written one at a time.
+ */
+public final class MxlWriter implements Closeable {
+
+    private static final byte[] MIMETYPE = "application/vnd.recordare.musicxml".getBytes(StandardCharsets.US_ASCII);
+
+    private final ZipOutputStream zip;
+    private final OutputStream    entry;   // zip without close(), for the renderer
+    private final List<String>    rootFiles = new ArrayList<>();
+    private boolean finished;
+
+    public MxlWriter(OutputStream out) throws IOException {
+        this(out, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param level {@link Deflater} level, 1 (fast) to 9 (small)
+     */
+    public MxlWriter(OutputStream out, int level) throws IOException {
+        zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+        zip.setLevel(level);
+        entry = new FilterOutputStream(zip) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                zip.write(b, off, len);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        // must come first and uncompressed, so the type can be sniffed
+        ZipEntry mt = new ZipEntry("mimetype");
+        CRC32    crc = new CRC32();
+        crc.update(MIMETYPE);
+        mt.setMethod(ZipEntry.STORED);
+        mt.setSize(MIMETYPE.length);
+        mt.setCrc(crc.getValue());
+        zip.putNextEntry(mt);
+        zip.write(MIMETYPE);
+        zip.closeEntry();
+    }
+
+    /**
+     * Adds {@code name}.musicxml rendered from absolute MIDI pitches.
+     *
+     * @throws java.util.zip.ZipException if {@code name} was already added
+     */
+    public synchronized void add(String name, Cadence midiCad, int bpm, Meter meter) throws IOException {
+        if (finished) throw new IllegalStateException("archive already finished");
+        String path = name + ".musicxml";
+        zip.putNextEntry(new ZipEntry(path));
+        ScoreRenderer.writeMusicXMLFromMidi(midiCad, bpm, meter, entry);
+        zip.closeEntry();
+        rootFiles.add(path);
+    }
+
+    /**
+     * Writes the container and the zip directory; leaves the target open.
+     */
+    public synchronized void finish() throws IOException {
+        if (finished) return;
+        finished = true;
+        zip.putNextEntry(new ZipEntry("META-INF/container.xml"));
+        StringBuilder sb = new StringBuilder()
+            .append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+            .append("<container>\n")
+            .append("  <rootfiles>\n");
+        for (String f : rootFiles) {
+            sb.append("    <rootfile full-path=\"").append(escape(f))
+              .append("\" media-type=\"application/vnd.recordare.musicxml+xml\"/>\n");
+        }
+        sb.append("  </rootfiles>\n")
+          .append("</container>\n");
+        zip.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+        zip.finish();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        finish();
+        zip.close();
+    }
+
+    /**
+     * A single-score .mxl written to {@code out}, which is left open.
+     */
+    public static void write(Cadence midiCad, int bpm, Meter meter, OutputStream out) throws IOException {
+        MxlWriter w = new MxlWriter(out);
+        w.add("score", midiCad, bpm, meter);
+        w.finish();
+        out.flush();
+    }
+
+    private static String escape(String s) {
+        return s.replace("&", "&amp;").replace("\"", "&quot;").replace("<", "&lt;");
+    }
+}
@@ -1,141 +1,147 @@
 package com.music.service;
 
 import com.music.domain.Cadence;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.Arrays;
 
 /**
  * Renders a Cadence of ABSOLUTE MIDI pitches into MusicXML
  * with two staves: staff 1 (G-clef) for alto & soprano,
  * staff 2 (F-clef) for tenor & bass.
+ *
+ * Each chord takes one beat of the {@link Meter} (4/4 unless given), and the
+ * progression is split into measures; a short last measure is filled with
+ * rests. The {@code write…} methods stream the document measure by measure
+ * through a fixed buffer, so exporting a long score takes no memory beyond
+ * the grid itself.
  */
 public class ScoreRenderer {
 
     /**
-     * Converts a cadence with 4-voice chords into MusicXML.
+     * Converts a cadence with 4-voice chords into MusicXML in 4/4.
      *
      * @param midiCad The cadence containing absolute MIDI pitches.
      * @param bpm     Beats per minute (tempo).
      * @return        A MusicXML document as a string.
      */
     public static String toMusicXMLFromMidi(Cadence midiCad, int bpm) {
-        int[][] grid   = midiCad.intervals();
-        int     chords = grid.length;
-
-        StringBuilder xml = new StringBuilder()
-            .append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
-            .append("<score-partwise version=\"3.1\">\n")
-            .append("  <part-list>\n")
-            .append("    <score-part id=\"P1\"><part-name>Piano</part-name></score-part>\n")
-            .append("  </part-list>\n")
-            .append("  <part id=\"P1\">\n")
-            .append("    <measure number=\"1\">\n")
-            .append("      <attributes>\n")
-            .append("        <divisions>1</divisions>\n")
-            .append("        <staves>2</staves>\n")
-            .append("        <key><fifths>0</fifths></key>\n")
-            .append("        <time><beats>").append(chords)
-            .append("</beats><beat-type>4</beat-type></time>\n")
-            .append("        <clef number=\"1\"><sign>G</sign><line>2</line></clef>\n")
-            .append("        <clef number=\"2\"><sign>F</sign><line>4</line></clef>\n")
-            .append("      </attributes>\n")
-            .append("      <direction>\n")
-            .append("        <direction-type><metronome>\n")
-            .append("          <beat-unit>quarter</beat-unit>\n")
-            .append("          <per-minute>").append(bpm).append("</per-minute>\n")
-            .append("        </metronome></direction-type>\n")
-            .append("      </direction>\n");
-
-        // Staff 1: Alto then Soprano
-        for (int i = 0; i < chords; i++) {
-            int[] chord = Arrays.copyOf(grid[i], 4);
-            Arrays.sort(chord);
-            int alto    = chord[2];
-            int soprano = chord[3];
-
-            xml.append(renderNote(alto,    1, 1, false, "up"));
-            xml.append(renderNote(soprano, 1, 1, true,  "up"));
-        }
+        return toMusicXMLFromMidi(midiCad, bpm, Meter.COMMON);
+    }
 
-        // Backup to beginning for staff 2
-        xml.append("      <backup><duration>")
-           .append(chords).append("</duration></backup>\n");
+    /**
+     * Converts a cadence with 4-voice chords into MusicXML in {@code meter}.
+     */
+    public static String toMusicXMLFromMidi(Cadence midiCad, int bpm, Meter meter) {
+        StringWriter sw = new StringWriter(512 + 400 * midiCad.intervals().length);
+        try {
+            writeMusicXMLFromMidi(midiCad, bpm, meter, sw);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);   // StringWriter does not throw
+        }
+        return sw.toString();
+    }
 
-        // Staff 2: Bass then Tenor
-        for (int i = 0; i < chords; i++) {
-            int[] chord = Arrays.copyOf(grid[i], 4);
-            Arrays.sort(chord);
-            int bass  = chord[0];
-            int tenor = chord[1];
+    public static void writeMusicXMLFromMidi(Cadence midiCad, int bpm, Writer out) throws IOException {
+        writeMusicXMLFromMidi(midiCad, bpm, Meter.COMMON, out);
+    }
 
-            xml.append(renderNote(bass,  2, 2, false, "down"));
-            xml.append(renderNote(tenor, 2, 2, true,  "down"));
-        }
+    public static void writeMusicXMLFromMidi(Cadence midiCad, int bpm, OutputStream out) throws IOException {
+        writeMusicXMLFromMidi(midiCad, bpm, Meter.COMMON, out);
+    }
 
-        xml.append("    </measure>\n")
-           .append("  </part>\n")
-           .append("</score-partwise>\n");
-        return xml.toString();
+    /**
+     * Writes the MusicXML document to {@code out}, which should be buffered
+     * or in-memory; {@code out} is flushed but not closed.
+     */
+    public static void writeMusicXMLFromMidi(Cadence midiCad, int bpm, Meter meter, Writer out) throws IOException {
+        write(midiCad, bpm, meter, new MusicXmlStream(out));
+        out.flush();
     }
 
     /**
-     * Renders a single MusicXML <note> element.
+     * Writes the MusicXML document to {@code out} as UTF-8; {@code out} is
+     * flushed but not closed.
      */
-    private static String renderNote(int midiPitch, int staff, int voice, boolean chord, String stemDir) {
-        PitchInfo p = midiToPitch(midiPitch);
-        StringBuilder sb = new StringBuilder();
-        sb.append("      <note>\n");
-        if (chord) sb.append("        <chord/>\n");
-        sb.append("        <pitch>\n")
-          .append("          <step>").append(p.step).append("</step>\n");
-        if (p.alter != 0)
-          sb.append("          <alter>").append(p.alter).append("</alter>\n");
-        sb.append("          <octave>").append(p.octave).append("</octave>\n")
-          .append("        </pitch>\n")
-          .append("        <duration>1</duration>\n")
-          .append("        <voice>").append(voice).append("</voice>\n")
-          .append("        <type>quarter</type>\n")
-          .append("        <stem>").append(stemDir).append("</stem>\n")
-          .append("        <staff>").append(staff).append("</staff>\n")
-          .append("      </note>\n");
-        return sb.toString();
+    public static void writeMusicXMLFromMidi(Cadence midiCad, int bpm, Meter meter, OutputStream out) throws IOException {
+        write(midiCad, bpm, meter, new MusicXmlStream(out));
+        out.flush();
     }
 
-    private static class PitchInfo {
-        final String step;
-        final int alter;
-        final int octave;
-        PitchInfo(String step, int alter, int octave) {
-            this.step   = step;
-            this.alter  = alter;
-            this.octave = octave;
+    private static void write(Cadence midiCad, int bpm, Meter meter, MusicXmlStream xml) throws IOException {
+        int[][] grid    = midiCad.intervals();
+        int     chords  = grid.length;
+        int     beats   = meter.beats;
+        int     beatDur = meter.beatDuration();
+        String  unit    = meter.beatUnit();
+
+        byte[] upperEnd  = MusicXmlStream.noteEnd(1, 1, "up",   beatDur, unit);
+        byte[] lowerEnd  = MusicXmlStream.noteEnd(2, 2, "down", beatDur, unit);
+        byte[] upperRest = MusicXmlStream.rest(1, 1, beatDur, unit);
+        byte[] lowerRest = MusicXmlStream.rest(2, 2, beatDur, unit);
+
+        // one measure of chords, each sorted once (bass, tenor, alto, soprano)
+        int[] satb = new int[beats * 4];
+
+        xml.put(MusicXmlStream.SCORE_HEAD);
+        int measure = 0;
+        for (int first = 0; first < chords || measure == 0; first += beats) {
+            int count = Math.min(beats, chords - first);
+            for (int k = 0; k < count; k++) sortVoices(grid[first + k], satb, 4 * k);
+
+            xml.put(MusicXmlStream.MEASURE);
+            xml.putInt(++measure);
+            xml.put(MusicXmlStream.MEASURE_TAG);
+            if (measure == 1) {
+                xml.put(MusicXmlStream.DIVISIONS);
+                xml.putInt(meter.divisions());
+                xml.put(MusicXmlStream.BEATS);
+                xml.putInt(beats);
+                xml.put(MusicXmlStream.BEAT_TYPE);
+                xml.putInt(meter.beatType);
+                xml.put(MusicXmlStream.BEAT_UNIT);
+                xml.put(MusicXmlStream.ascii(unit));
+                xml.put(MusicXmlStream.PER_MINUTE);
+                xml.putInt(bpm);
+                xml.put(MusicXmlStream.HEAD_END);
+            }
+
+            // Staff 1: Alto then Soprano
+            for (int k = 0; k < count; k++) {
+                xml.note(satb[4 * k + 2], false, upperEnd);
+                xml.note(satb[4 * k + 3], true,  upperEnd);
+            }
+            for (int k = count; k < beats; k++) xml.put(upperRest);
+
+            // Backup to the start of the measure for staff 2
+            xml.put(MusicXmlStream.BACKUP);
+            xml.putInt(beats * beatDur);
+            xml.put(MusicXmlStream.BACKUP_END);
+
+            // Staff 2: Bass then Tenor
+            for (int k = 0; k < count; k++) {
+                xml.note(satb[4 * k],     false, lowerEnd);
+                xml.note(satb[4 * k + 1], true,  lowerEnd);
+            }
+            for (int k = count; k < beats; k++) xml.put(lowerRest);
+
+            xml.put(MusicXmlStream.MEASURE_END);
         }
+        xml.put(MusicXmlStream.TAIL);
+        xml.flush();
     }
 
     /**
-     * Converts a MIDI number into step/alter/octave.
+     * First four voices of {@code row}, zero-padded and sorted low to high,
+     * into {@code out[at..at+3]}.
      */
-    private static PitchInfo midiToPitch(int midi) {
-        int octave = (midi / 12) - 1;
-        int pc     = midi % 12;
-        String step;
-        int alter;
-
-        switch (pc) {
-            case 0:  step = "C"; alter = 0; break;
-            case 1:  step = "C"; alter = 1; break;
-            case 2:  step = "D"; alter = 0; break;
-            case 3:  step = "D"; alter = 1; break;
-            case 4:  step = "E"; alter = 0; break;
-            case 5:  step = "F"; alter = 0; break;
-            case 6:  step = "F"; alter = 1; break;
-            case 7:  step = "G"; alter = 0; break;
-            case 8:  step = "G"; alter = 1; break;
-            case 9:  step = "A"; alter = 0; break;
-            case 10: step = "A"; alter = 1; break;
-            case 11: step = "B"; alter = 0; break;
-            default: throw new IllegalArgumentException("Invalid MIDI note: " + midi);
-        }
-
-        return new PitchInfo(step, alter, octave);
+    private static void sortVoices(int[] row, int[] out, int at) {
+        Arrays.fill(out, at, at + 4, 0);
+        System.arraycopy(row, 0, out, at, Math.min(row.length, 4));
+        Arrays.sort(out, at, at + 4);
     }
 }
@@ -0,0 +1,143 @@
+package com.music.service;
+
+import com.music.domain.Cadence;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Byte-level Standard MIDI File writer for bulk export. Writes exactly what
+ * {@link MidiExporter#write(Cadence, int, int, int, OutputStream)} writes
+ * (same tracks, running status included) but encodes straight into one
+ * reusable buffer, with no Sequence, Track, MidiEvent or message objects.
+ *
+ * An instance is not thread-safe; give each worker its own and reuse it.
+ */
+public final class SmfWriter {
+
+    private byte[] buf = new byte[4096];
+    private int    n;
+    private int    running;   // status byte of the last channel message, -1 after a meta event
+
+    public void write(Cadence midiCad, int bpm, int bank, int program, OutputStream out) throws IOException {
+        MidiExporter.checkArguments(bpm, bank, program);
+        int[][] grid   = midiCad.intervals();
+        int     voices = MidiExporter.voices(grid);
+        n = 0;
+
+        // header: MThd, length 6, format 1, track count, ticks per quarter
+        ascii("MThd");
+        int32(6);
+        int16(1);
+        int16(1 + voices);
+        int16(MidiExporter.PPQ);
+
+        int at = beginTrack();
+        delta(0);
+        meta(0x51, MidiExporter.tempo(bpm));
+        endTrack(at);
+
+        for (int v = 0; v < voices; v++) {
+            int ch = MidiExporter.channel(v);
+            at = beginTrack();
+            delta(0); event(0xB0 | ch, 0,  bank >> 7);
+            delta(0); event(0xB0 | ch, 32, bank & 0x7F);
+            delta(0); event(0xC0 | ch, program);
+
+            long last = 0, tick = 0;
+            for (int[] chord : grid) {
+                if (v < chord.length) {
+                    int pitch = chord[v];
+                    if (pitch < 0 || pitch > 127) {
+                        throw new IOException("Cannot encode cadence as MIDI: note out of range: " + pitch);
+                    }
+                    delta(tick - last);
+                    event(0x90 | ch, pitch, MidiExporter.VELOCITY);
+                    delta(MidiExporter.PPQ);
+                    event(0x80 | ch, pitch, 0);
+                    last = tick + MidiExporter.PPQ;
+                }
+                tick += MidiExporter.PPQ;
+            }
+            endTrack(at);
+        }
+        out.write(buf, 0, n);
+    }
+
+    // ----- encoding ----------------------------------------------------------
+
+    /** Writes MTrk and a length placeholder; returns where the length goes. */
+    private int beginTrack() {
+        ascii("MTrk");
+        int at = n;
+        int32(0);
+        running = -1;
+        return at;
+    }
+
+    private void endTrack(int lengthAt) {
+        delta(0);
+        meta(0x2F, new byte[0]);
+        int len = n - lengthAt - 4;
+        buf[lengthAt]     = (byte) (len >>> 24);
+        buf[lengthAt + 1] = (byte) (len >>> 16);
+        buf[lengthAt + 2] = (byte) (len >>> 8);
+        buf[lengthAt + 3] = (byte) len;
+    }
+
+    private void event(int status, int data1) {
+        status(status);
+        put(data1);
+    }
+
+    private void event(int status, int data1, int data2) {
+        status(status);
+        put(data1);
+        put(data2);
+    }
+
+    private void status(int status) {
+        if (status != running) {
+            put(status);
+            running = status;
+        }
+    }
+
+    private void meta(int type, byte[] data) {
+        put(0xFF);
+        put(type);
+        delta(data.length);
+        for (byte b : data) put(b);
+        running = -1;
+    }
+
+    /** Variable-length quantity, 7 bits per byte, most significant first. */
+    private void delta(long value) {
+        int shift = 0;
+        while (shift < 63 && (value >>> (shift + 7)) != 0) shift += 7;
+        for (; shift > 0; shift -= 7) put((int) (0x80 | ((value >>> shift) & 0x7F)));
+        put((int) (value & 0x7F));
+    }
+
+    private void ascii(String s) {
+        for (int i = 0; i < s.length(); i++) put(s.charAt(i));
+    }
+
+    private void int32(int v) {
+        put(v >>> 24);
+        put(v >>> 16);
+        put(v >>> 8);
+        put(v);
+    }
+
+    private void int16(int v) {
+        put(v >>> 8);
+        put(v);
+    }
+
+    private void put(int b) {
+        if (n == buf.length) buf = Arrays.copyOf(buf, n * 2);
+        buf[n++] = (byte) b;
+    }
+}
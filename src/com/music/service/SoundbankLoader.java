@@ -0,0 +1,115 @@
+package com.music.service;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.Soundbank;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.jar.JarEntry;
+
+/**
+ * Opens SoundFonts with their sample data left on disk.
+ *
+ * Read from a stream, the JDK's SoundFont reader copies the whole file,
+ * samples included, onto the heap. Read from a file it parses only the
+ * preset and instrument headers and keeps each sample as a file offset,
+ * which a synthesizer reads when an instrument using it is loaded. So a
+ * bundled SoundFont is opened in place when it sits on disk, and otherwise
+ * (inside a jar) extracted once to a private per-user cache and opened there.
+ */
+public final class SoundbankLoader {
+
+    public static final String BUNDLED = "/soundfonts/FluidR3_GM.sf2";
+
+    private SoundbankLoader() {}
+
+    /**
+     * The bundled FluidR3_GM.sf2, or null when it is not on the classpath
+     * or cannot be read.
+     */
+    public static Soundbank bundled() {
+        try {
+            return load(BUNDLED);
+        } catch (IOException | InvalidMidiDataException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Opens classpath resource {@code resource} as a file-backed soundbank.
+     *
+     * @return null if there is no such resource
+     */
+    public static Soundbank load(String resource) throws IOException, InvalidMidiDataException {
+        URL url = SoundbankLoader.class.getResource(resource);
+        return url == null ? null : MidiSystem.getSoundbank(file(url, resource));
+    }
+
+    /**
+     * The resource itself when it is a plain file. Otherwise a copy in the
+     * per-user cache, named after the jar entry's CRC-32 so that a copy is
+     * reused only for the same content; without a CRC, a fresh copy per run.
+     */
+    private static File file(URL url, String resource) throws IOException {
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return new File(url.toURI());
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                // unusual file URL: fall back to copying it
+            }
+        }
+        URLConnection conn = url.openConnection();
+        long crc = -1;
+        if (conn instanceof JarURLConnection) {
+            JarEntry entry = ((JarURLConnection) conn).getJarEntry();
+            if (entry != null) crc = entry.getCrc();
+        }
+        String name = resource.substring(resource.lastIndexOf('/') + 1);
+        Path   dir  = cacheDir();
+        if (crc < 0) {
+            Path copy = Files.createTempFile(dir, "", "-" + name);
+            copy.toFile().deleteOnExit();
+            try (InputStream in = conn.getInputStream()) {
+                Files.copy(in, copy, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return copy.toFile();
+        }
+        Path copy = dir.resolve(String.format("%08x-%s", crc, name));
+        if (!Files.isRegularFile(copy) || Files.size(copy) != conn.getContentLengthLong()) {
+            // copy under a private name and rename, so a concurrent start never opens half a file
+            Path part = Files.createTempFile(dir, name, ".part");
+            try (InputStream in = conn.getInputStream()) {
+                Files.copy(in, part, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(part, copy, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(part);
+            }
+        }
+        return copy.toFile();
+    }
+
+    /**
+     * ~/.cache/music-cadence-generator, open to its owner only, so no other
+     * local user can plant a SoundFont there.
+     */
+    private static Path cacheDir() throws IOException {
+        Path dir = Paths.get(System.getProperty("user.home"), ".cache", "music-cadence-generator");
+        Files.createDirectories(dir);
+        try {
+            Files.setPosixFilePermissions(dir, PosixFilePermissions.fromString("rwx------"));
+        } catch (UnsupportedOperationException e) {
+            // not a POSIX file system; the home directory is private there
+        }
+        return dir;
+    }
+}
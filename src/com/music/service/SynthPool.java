@@ -0,0 +1,316 @@
+package com.music.service;
+
+import javax.sound.midi.Instrument;
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.MidiUnavailableException;
+import javax.sound.midi.Patch;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Soundbank;
+import javax.sound.midi.Synthesizer;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed number of synthesizers, opened up front, handed out as leases.
+ *
+ * A shared lease is one channel (percussion excluded) on the least busy
+ * synthesizer, so up to 15 jobs per instance play side by side without
+ * touching each other's program or notes. An exclusive lease is a whole
+ * instance, for offline rendering where one job owns the audio stream.
+ * Instruments are loaded from the soundbank the first time a patch is
+ * leased on an instance, instead of the whole bank at start-up. Acquiring
+ * blocks only while every channel (or instance) is out; closing a lease
+ * silences its channel and hands it back.
+ */
+public final class SynthPool implements AutoCloseable {
+
+    public static final AudioFormat OFFLINE_FORMAT = new AudioFormat(44_100f, 16, 2, true, false);
+
+    private static final int CHANNELS = 16;
+    private static final int DRUMS    = 9;
+
+    private final Soundbank soundbank;
+    private final Member[]  members;
+
+    private final ReentrantLock lock     = new ReentrantLock();
+    private final Condition     released = lock.newCondition();
+    private boolean closed;
+
+    private SynthPool(int size, Soundbank soundbank, boolean offline) throws MidiUnavailableException {
+        if (size < 1) throw new IllegalArgumentException("pool size must be >= 1");
+        this.soundbank = soundbank;
+        this.members   = new Member[size];
+        try {
+            for (int i = 0; i < size; i++) members[i] = new Member(offline);
+        } catch (MidiUnavailableException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Instances playing to the default audio device.
+     *
+     * @param soundbank instruments to load on demand, or null for each synthesizer's default bank
+     */
+    public static SynthPool realtime(int size, Soundbank soundbank) throws MidiUnavailableException {
+        return new SynthPool(size, soundbank, false);
+    }
+
+    /**
+     * Instances that render into an {@link AudioInputStream} of
+     * {@link #OFFLINE_FORMAT} instead of a device; lease them exclusively.
+     * Needs {@code --add-exports java.desktop/com.sun.media.sound=ALL-UNNAMED}.
+     */
+    public static SynthPool offline(int size, Soundbank soundbank) throws MidiUnavailableException {
+        return new SynthPool(size, soundbank, true);
+    }
+
+    public int size() {
+        return members.length;
+    }
+
+    /**
+     * What can be leased: the soundbank's instruments, or the default bank's.
+     */
+    public Instrument[] instruments() {
+        return soundbank != null ? soundbank.getInstruments()
+                                 : members[0].synth.getDefaultSoundbank().getInstruments();
+    }
+
+    /**
+     * One channel set to {@code bank}/{@code program}, on the instance with
+     * the most free channels; waits while every channel is leased.
+     */
+    public Lease acquire(int bank, int program) throws InterruptedException {
+        return acquire(bank, program, true);
+    }
+
+    /**
+     * As {@link #acquire}, but returns null at once instead of waiting when
+     * every channel is leased; for callers such as the EDT that must not block.
+     */
+    public Lease tryAcquire(int bank, int program) {
+        try {
+            return acquire(bank, program, false);
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);   // never waits
+        }
+    }
+
+    private Lease acquire(int bank, int program, boolean wait) throws InterruptedException {
+        Member m;
+        int    ch;
+        lock.lock();
+        try {
+            while (true) {
+                if (closed) throw new IllegalStateException("pool closed");
+                m = null;
+                for (Member c : members) {
+                    if (!c.exclusive && c.leased < CHANNELS - 1 && (m == null || c.leased < m.leased)) m = c;
+                }
+                if (m != null) break;
+                if (!wait) return null;
+                released.await();
+            }
+            ch = 0;
+            while (ch == DRUMS || m.busy[ch]) ch++;
+            m.busy[ch] = true;
+            m.leased++;
+        } finally {
+            lock.unlock();
+        }
+        return new Lease(m, ch, bank, program);
+    }
+
+    /**
+     * A whole idle instance, its channel 0 set to {@code bank}/{@code program}.
+     */
+    public Lease acquireExclusive(int bank, int program) throws InterruptedException {
+        Member m;
+        lock.lock();
+        try {
+            while (true) {
+                if (closed) throw new IllegalStateException("pool closed");
+                m = null;
+                for (Member c : members) {
+                    if (!c.exclusive && c.leased == 0) { m = c; break; }
+                }
+                if (m != null) break;
+                released.await();
+            }
+            m.exclusive = true;
+        } finally {
+            lock.unlock();
+        }
+        return new Lease(m, -1, bank, program);
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (Member m : members) {
+            if (m != null) m.synth.close();
+        }
+    }
+
+    private void release(Member m, int channel) {
+        lock.lock();
+        try {
+            if (channel < 0) {
+                m.exclusive = false;
+            } else {
+                m.busy[channel] = false;
+                m.leased--;
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** One pooled instance; guarded by the pool lock except {@link #loaded}. */
+    private final class Member {
+        final Synthesizer      synth;
+        final Receiver         receiver;
+        final AudioInputStream stream;
+        final boolean[]        busy = new boolean[CHANNELS];
+        final Set<Integer>     loaded = new HashSet<>();   // bank·128 + program; guarded by itself
+        int     leased;
+        boolean exclusive;
+
+        Member(boolean offline) throws MidiUnavailableException {
+            synth = MidiSystem.getSynthesizer();
+            if (offline) {
+                stream = openStream(synth);
+            } else {
+                synth.open();
+                stream = null;
+            }
+            receiver = synth.getReceiver();
+        }
+
+        void ensureLoaded(int bank, int program) {
+            if (soundbank == null) return;
+            synchronized (loaded) {
+                if (!loaded.add(bank * 128 + program)) return;
+                Instrument ins = soundbank.getInstrument(new Patch(bank, program));
+                if (ins != null) synth.loadInstrument(ins);
+            }
+        }
+    }
+
+    /**
+     * A channel (or a whole instance) on loan; close it when the job is done.
+     */
+    public final class Lease implements AutoCloseable {
+
+        private final Member  member;
+        private final int     channel;     // -1 for an exclusive lease
+        private boolean       returned;
+
+        private Lease(Member member, int channel, int bank, int program) {
+            this.member  = member;
+            this.channel = channel;
+            try {
+                member.ensureLoaded(bank, program);
+                int ch = channel();
+                send(ShortMessage.CONTROL_CHANGE, ch, 0,  bank >> 7,   -1);
+                send(ShortMessage.CONTROL_CHANGE, ch, 32, bank & 0x7F, -1);
+                send(ShortMessage.PROGRAM_CHANGE, ch, program, 0,      -1);
+            } catch (RuntimeException e) {
+                close();
+                throw e;
+            }
+        }
+
+        public Synthesizer synth() {
+            return member.synth;
+        }
+
+        /** Channel to play on. */
+        public int channel() {
+            return channel < 0 ? 0 : channel;
+        }
+
+        /** The rendered audio of an offline instance, or null. */
+        public AudioInputStream stream() {
+            return member.stream;
+        }
+
+        /**
+         * Sends a channel message on this lease's channel.
+         *
+         * @param timeStamp synthesizer time in µs, or -1 for now
+         */
+        public void send(int command, int data1, int data2, long timeStamp) {
+            send(command, channel(), data1, data2, timeStamp);
+        }
+
+        private void send(int command, int ch, int data1, int data2, long timeStamp) {
+            try {
+                member.receiver.send(new ShortMessage(command, ch, data1, data2), timeStamp);
+            } catch (InvalidMidiDataException e) {
+                throw new IllegalArgumentException(e.getMessage(), e);
+            }
+        }
+
+        /**
+         * Silences the channel (all of them for an exclusive lease) and returns it.
+         */
+        @Override
+        public void close() {
+            if (returned) return;
+            returned = true;
+            try {
+                if (channel >= 0) {
+                    send(ShortMessage.CONTROL_CHANGE, channel, 123, 0, -1);   // all notes off
+                } else {
+                    for (int ch = 0; ch < CHANNELS; ch++) send(ShortMessage.CONTROL_CHANGE, ch, 123, 0, -1);
+                }
+            } finally {
+                release(member, channel);
+            }
+        }
+    }
+
+    /**
+     * Opens {@code synth} as a pull stream instead of on an audio line,
+     * through the JDK-internal {@code AudioSynthesizer}.
+     */
+    private static AudioInputStream openStream(Synthesizer synth) throws MidiUnavailableException {
+        try {
+            Class<?> audioSynth = Class.forName("com.sun.media.sound.AudioSynthesizer");
+            if (!audioSynth.isInstance(synth)) {
+                throw new MidiUnavailableException("default synthesizer cannot render offline");
+            }
+            Method open = audioSynth.getMethod("openStream", AudioFormat.class, Map.class);
+            return (AudioInputStream) open.invoke(synth, OFFLINE_FORMAT, null);
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            throw new MidiUnavailableException("this JDK has no offline synthesizer: " + e);
+        } catch (IllegalAccessException e) {
+            throw new MidiUnavailableException(
+                "offline rendering needs --add-exports java.desktop/com.sun.media.sound=ALL-UNNAMED");
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof MidiUnavailableException) throw (MidiUnavailableException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new MidiUnavailableException(String.valueOf(cause));
+        }
+    }
+}
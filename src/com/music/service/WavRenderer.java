@@ -0,0 +1,127 @@
+package com.music.service;
+
+import com.music.domain.Cadence;
+
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Soundbank;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Renders a Cadence of ABSOLUTE MIDI pitches to a 16-bit stereo WAV file
+ * without a sound device, as fast as the synthesizer can compute it.
+ *
+ * Each render leases a whole offline instance from a {@link SynthPool}
+ * (instruments stay loaded between renders), queues every note with its
+ * timestamp up front and pulls PCM from the instance's stream into the
+ * file through a {@link FileChannel}. As many renders run in parallel as
+ * the pool has instances.
+ */
+public class WavRenderer {
+
+    public static final AudioFormat FORMAT = SynthPool.OFFLINE_FORMAT;
+
+    private static final long TAIL_MICROS = 1_500_000;   // let the last chord ring out
+    private static final int  VELOCITY    = 100;
+
+    private final SynthPool pool;
+
+    public WavRenderer(SynthPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * FluidR3_GM.sf2 from the classpath, as MainApp loads it, or null when
+     * it is not bundled.
+     */
+    public static Soundbank bundledSoundbank() {
+        return SoundbankLoader.bundled();
+    }
+
+    /**
+     * Renders {@code midiCad}, one chord per beat, into {@code out}.
+     */
+    public void render(Cadence midiCad, int bpm, int bank, int program, Path out) throws IOException {
+        MidiExporter.checkArguments(bpm, bank, program);
+        int[][] grid = midiCad.intervals();
+        for (int[] chord : grid) {
+            for (int m : chord) {
+                if (m < 0 || m > 127) throw new IllegalArgumentException("Invalid MIDI note: " + m);
+            }
+        }
+
+        int  frameSize = FORMAT.getFrameSize();
+        long frames    = (beatMicros(grid.length, bpm) + TAIL_MICROS) * (long) FORMAT.getSampleRate() / 1_000_000;
+        long dataBytes = frames * frameSize;
+        if (dataBytes > 0xFFFF_FFFFL - 36) throw new IOException("cadence too long for a WAV file");
+
+        try (SynthPool.Lease lease = pool.acquireExclusive(bank, program)) {
+            // the instance's clock stands where its last render stopped reading
+            long base = lease.synth().getMicrosecondPosition();
+            for (int k = 0; k < grid.length; k++) {
+                long on  = base + beatMicros(k, bpm);
+                long off = base + beatMicros(k + 1, bpm);
+                for (int m : grid[k]) {
+                    lease.send(ShortMessage.NOTE_ON,  m, VELOCITY, on);
+                    lease.send(ShortMessage.NOTE_OFF, m, 0,        off);
+                }
+            }
+
+            AudioInputStream pcm   = lease.stream();
+            byte[]           chunk = new byte[frameSize * 4096];
+            ByteBuffer       view  = ByteBuffer.wrap(chunk);
+            long             left  = dataBytes;
+            try (FileChannel ch = FileChannel.open(out, StandardOpenOption.CREATE,
+                                                   StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                writeFully(ch, header(dataBytes));
+                while (left > 0) {
+                    int n = pcm.read(chunk, 0, (int) Math.min(chunk.length, left));
+                    if (n <= 0) throw new IOException("synthesizer stream ended early");
+                    view.clear().limit(n);
+                    writeFully(ch, view);
+                    left -= n;
+                }
+            } finally {
+                // play out what a failed write left queued, so the next lease starts clean
+                int n;
+                while (left > 0 && (n = pcm.read(chunk, 0, (int) Math.min(chunk.length, left))) > 0) left -= n;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting for a synthesizer");
+        }
+    }
+
+    /** Exact k·60 s/bpm in microseconds. */
+    private static long beatMicros(int k, int bpm) {
+        return k * 60_000_000L / bpm;
+    }
+
+    /** RIFF/WAVE header for {@link #FORMAT} PCM of {@code dataBytes} bytes. */
+    private static ByteBuffer header(long dataBytes) {
+        int channels = FORMAT.getChannels();
+        int rate     = (int) FORMAT.getSampleRate();
+        int frame    = FORMAT.getFrameSize();
+        ByteBuffer h = ByteBuffer.allocate(44).order(ByteOrder.LITTLE_ENDIAN);
+        h.put(new byte[] { 'R', 'I', 'F', 'F' }).putInt((int) (36 + dataBytes))
+         .put(new byte[] { 'W', 'A', 'V', 'E' })
+         .put(new byte[] { 'f', 'm', 't', ' ' }).putInt(16)
+         .putShort((short) 1).putShort((short) channels)
+         .putInt(rate).putInt(rate * frame)
+         .putShort((short) frame).putShort((short) FORMAT.getSampleSizeInBits())
+         .put(new byte[] { 'd', 'a', 't', 'a' }).putInt((int) dataBytes);
+        h.flip();
+        return h;
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer b) throws IOException {
+        while (b.hasRemaining()) ch.write(b);
+    }
+}
@@ -0,0 +1,206 @@
+package com.music.transform;
+
+import com.music.domain.Cadence;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Compiles a chain of transformers into a single {@link Transformer}.
+ *
+ * Runs of consecutive {@link ElementWise}, {@link RowMapping} and
+ * {@link ChordReversal} stages are fused into one pass that allocates a
+ * single output grid: element-wise maps commute with reordering, so the
+ * fused pass gathers each output chord from its source chord, reverses it
+ * if needed, and applies the composed pitch map once per note. The composed
+ * map is tabulated over the grid's value range, so each note costs a
+ * single array lookup however many maps were fused.
+ * Adjacent instances of the same {@link Involution} cancel out, and any
+ * other stage runs unchanged between fused runs.
+ *
+ * Fused output carries the input's type and a "Fused" description; use the
+ * stages one by one when per-stage names matter.
+ *
+ * The compiled chain is {@link Deterministic} when every stage is, keyed by
+ * the stages' own keys in order, so a {@link TransformCache} memoizes the
+ * whole chain as one entry.
+ */
+public final class ChainCompiler {
+
+    private ChainCompiler() {}
+
+    public static Transformer compile(List<? extends Transformer> stages) {
+        Transformer  compiled = compileStages(stages);
+        List<Object> keys     = new ArrayList<>();
+        for (Transformer t : stages) {
+            if (!(t instanceof Deterministic)) return compiled;
+            keys.add(((Deterministic) t).cacheKey());
+        }
+        if (stages.size() == 1 && compiled == stages.get(0)) return compiled;
+        return new DeterministicChain(compiled, Collections.unmodifiableList(keys));
+    }
+
+    private static Transformer compileStages(List<? extends Transformer> stages) {
+        // 1) inverse pairs cancel: a stack makes nested pairs (A B B A) cancel too
+        List<Transformer> reduced = new ArrayList<>();
+        for (Transformer t : stages) {
+            int last = reduced.size() - 1;
+            if (t instanceof Involution && last >= 0
+             && reduced.get(last).getClass() == t.getClass()) {
+                reduced.remove(last);
+            } else {
+                reduced.add(t);
+            }
+        }
+
+        // 2) group fusable runs
+        List<Transformer> compiled = new ArrayList<>();
+        List<Transformer> run      = new ArrayList<>();
+        for (Transformer t : reduced) {
+            if (isFusable(t)) {
+                run.add(t);
+            } else {
+                flush(run, compiled);
+                compiled.add(t);
+            }
+        }
+        flush(run, compiled);
+
+        if (compiled.size() == 1) return compiled.get(0);
+        return new CompiledChain(compiled.toArray(new Transformer[0]));
+    }
+
+    private static boolean isFusable(Transformer t) {
+        return t instanceof ElementWise || t instanceof RowMapping || t instanceof ChordReversal;
+    }
+
+    private static void flush(List<Transformer> run, List<Transformer> out) {
+        if (run.isEmpty()) return;
+        out.add(new FusedStage(run.toArray(new Transformer[0])));
+        run.clear();
+    }
+
+    /**
+     * Stages applied in order; no fusion happens here.
+     */
+    private static final class CompiledChain implements Transformer {
+        private final Transformer[] stages;
+
+        CompiledChain(Transformer[] stages) {
+            this.stages = stages;
+        }
+
+        @Override
+        public Cadence transform(Cadence input) {
+            Cadence c = input;
+            for (Transformer t : stages) c = t.transform(c);
+            return c;
+        }
+    }
+
+    /**
+     * A compiled chain of deterministic stages, with their keys as its own.
+     */
+    private static final class DeterministicChain implements Transformer, Deterministic {
+        private final Transformer  chain;
+        private final List<Object> key;
+
+        DeterministicChain(Transformer chain, List<Object> key) {
+            this.chain = chain;
+            this.key   = key;
+        }
+
+        @Override
+        public Cadence transform(Cadence input) {
+            return chain.transform(input);
+        }
+
+        @Override
+        public Object cacheKey() {
+            return key;
+        }
+    }
+
+    // Widest value range tabulated; wider grids apply the maps note by note
+    private static final int MAX_TABLE = 1 << 12;
+
+    /**
+     * One pass over the grid for a run of fusable stages.
+     */
+    private static final class FusedStage implements Transformer {
+        private final RowMapping[]  rowMaps;    // in application order
+        private final ElementWise[] pitchMaps;  // in application order
+        private final boolean       reverse;    // odd number of chord reversals
+        private final String        label;
+
+        FusedStage(Transformer[] run) {
+            List<RowMapping>  rows    = new ArrayList<>();
+            List<ElementWise> pitches = new ArrayList<>();
+            boolean           rev     = false;
+            StringJoiner      names   = new StringJoiner(" → ");
+            for (Transformer t : run) {
+                if (t instanceof RowMapping)    rows.add((RowMapping) t);
+                if (t instanceof ElementWise)   pitches.add((ElementWise) t);
+                if (t instanceof ChordReversal) rev = !rev;
+                names.add(t.getClass().getSimpleName());
+            }
+            this.rowMaps   = rows.toArray(new RowMapping[0]);
+            this.pitchMaps = pitches.toArray(new ElementWise[0]);
+            this.reverse   = rev;
+            this.label     = names.toString();
+        }
+
+        @Override
+        public Cadence transform(Cadence input) {
+            int[][] in = input.intervals();
+
+            // chord counts before each row mapping
+            int[] counts = new int[rowMaps.length + 1];
+            counts[0] = in.length;
+            for (int k = 0; k < rowMaps.length; k++) {
+                counts[k + 1] = rowMaps[k].rows(counts[k]);
+            }
+
+            // composed pitch map as a lookup table over [min, max]
+            int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+            for (int[] row : in) {
+                for (int x : row) {
+                    if (x < min) min = x;
+                    if (x > max) max = x;
+                }
+            }
+            int[] table = null;
+            if (pitchMaps.length > 0 && min <= max && (long) max - min < MAX_TABLE) {
+                table = new int[max - min + 1];
+                for (int v = 0; v < table.length; v++) table[v] = applyPitchMaps(min + v);
+            }
+
+            int[][] out = new int[counts[rowMaps.length]][];
+            for (int i = 0; i < out.length; i++) {
+                int src = i;
+                for (int k = rowMaps.length - 1; k >= 0; k--) {
+                    src = rowMaps[k].sourceRow(src, counts[k]);
+                }
+                int[] row = in[src];
+                int   n   = row.length;
+                int[] dst = new int[n];
+                for (int j = 0; j < n; j++) {
+                    int x = row[reverse ? n - 1 - j : j];
+                    dst[j] = table != null        ? table[x - min]
+                           : pitchMaps.length > 0 ? applyPitchMaps(x)
+                           : x;
+                }
+                out[i] = dst;
+            }
+
+            return new Cadence(input.type(), out, null, "Fused – " + label);
+        }
+
+        private int applyPitchMaps(int x) {
+            for (ElementWise f : pitchMaps) x = f.applyAsInt(x);
+            return x;
+        }
+    }
+}
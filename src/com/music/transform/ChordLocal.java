@@ -0,0 +1,9 @@
+package com.music.transform;
+
+/**
+ * Marker for transformers whose output chords depend only on the matching
+ * input chord, one output chord per input chord. Such transformers can be
+ * streamed chord by chord without buffering.
+ */
+public interface ChordLocal {
+}
@@ -0,0 +1,8 @@
+package com.music.transform;
+
+/**
+ * Marker for transformers that reverse the notes inside every chord and
+ * do nothing else.
+ */
+public interface ChordReversal extends ChordLocal {
+}
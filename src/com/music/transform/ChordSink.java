@@ -0,0 +1,16 @@
+package com.music.transform;
+
+/**
+ * Receives a progression one chord at a time.
+ */
+public interface ChordSink {
+
+    /**
+     * Next chord. The sink may keep the array, so callers must not modify
+     * it afterwards.
+     */
+    void accept(int[] chord);
+
+    /** No more chords follow; flush any buffered chords downstream. */
+    void end();
+}
@@ -0,0 +1,18 @@
+package com.music.transform;
+
+/**
+ * Marker for transformers whose output depends only on their own parameters
+ * and the input cadence (grid, type and description), never on randomness or
+ * mutable state. Only such transformers are memoized by {@link TransformCache}.
+ */
+public interface Deterministic {
+
+    /**
+     * Identity of this transformer's behaviour: two instances with equal keys
+     * must produce equal output for equal input. Parameterised transformers
+     * override this to add their parameters to the class.
+     */
+    default Object cacheKey() {
+        return getClass();
+    }
+}
@@ -0,0 +1,9 @@
+package com.music.transform;
+
+/**
+ * Transformers that map every pitch independently of its position.
+ * {@link #transform} must equal applying {@link #applyAsInt} to every entry.
+ */
+public interface ElementWise extends ChordLocal {
+    int applyAsInt(int x);
+}
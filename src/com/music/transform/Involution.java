@@ -0,0 +1,8 @@
+package com.music.transform;
+
+/**
+ * Marker for transformers that undo themselves: applying one twice in a row
+ * gives back the input.
+ */
+public interface Involution {
+}
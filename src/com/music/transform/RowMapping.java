@@ -0,0 +1,14 @@
+package com.music.transform;
+
+/**
+ * Transformers that only reorder or repeat whole chords: output chord i is
+ * input chord {@link #sourceRow}(i, n), unchanged.
+ */
+public interface RowMapping {
+
+    /** Number of output chords for an input of {@code n} chords. */
+    int rows(int n);
+
+    /** Input chord copied to output position {@code i}. */
+    int sourceRow(int i, int n);
+}
@@ -0,0 +1,76 @@
+package com.music.transform;
+
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Remembered outputs of a linear chain of stages, for rerunning the chain
+ * after one of its inputs changed.
+ *
+ * The chain asks for its stages in order, each with the selector value it
+ * depends on beyond the previous stages (null for none). A stage is reused
+ * while that value is unchanged and every stage before it was reused too;
+ * the first stage whose value differs is computed again and everything
+ * after it is dropped. Changing the last selector of a long chain thus
+ * recomputes only the tail.
+ *
+ * Not thread-safe: confine an instance to the thread that runs the chain.
+ */
+public final class StageCache {
+
+    private final Object[] inputs;
+    private final Object[] outputs;
+    private int valid;          // stages [0, valid) are current
+
+    private long reused;
+    private long computed;
+
+    public StageCache(int stages) {
+        if (stages < 1) throw new IllegalArgumentException("need at least one stage");
+        inputs  = new Object[stages];
+        outputs = new Object[stages];
+    }
+
+    /**
+     * Output of stage {@code stage}, computed by {@code compute} unless it
+     * can be reused.
+     *
+     * @param input the selector value this stage depends on, compared with equals
+     * @throws IllegalStateException if an earlier stage was skipped
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(int stage, Object input, Supplier<T> compute) {
+        if (stage > valid) throw new IllegalStateException("stage " + stage + " requested before stage " + valid);
+        if (stage < valid && Objects.equals(inputs[stage], input)) {
+            reused++;
+            return (T) outputs[stage];
+        }
+        valid = stage;          // stops a failed compute from leaving later stages current
+        T out = compute.get();
+        inputs[stage]  = input;
+        outputs[stage] = out;
+        valid = stage + 1;
+        computed++;
+        return out;
+    }
+
+    /**
+     * Drops stage {@code stage} and everything after it.
+     */
+    public void invalidate(int stage) {
+        valid = Math.min(valid, Math.max(stage, 0));
+    }
+
+    public void clear() {
+        invalidate(0);
+    }
+
+    public long reused()   { return reused;   }
+    public long computed() { return computed; }
+
+    @Override
+    public String toString() {
+        return String.format("StageCache[stages=%d, current=%d, reused=%d, computed=%d]",
+            inputs.length, valid, reused, computed);
+    }
+}
@@ -0,0 +1,16 @@
+package com.music.transform;
+
+/**
+ * Chord-at-a-time form of a transformer.
+ *
+ * Each call to {@link #open} starts an independent stream whose state lives
+ * in the returned sink, so one transformer instance can serve many streams.
+ */
+public interface StreamingTransformer {
+
+    /**
+     * @param downstream receives the transformed chords
+     * @return           sink to push input chords into
+     */
+    ChordSink open(ChordSink downstream);
+}
@@ -0,0 +1,99 @@
+package com.music.transform;
+
+import com.music.domain.Cadence;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adapters between whole-cadence {@link Transformer}s and the streaming API.
+ */
+public final class StreamingTransformers {
+
+    private StreamingTransformers() {}
+
+    /**
+     * Streaming view of any transformer:
+     *  - native, if it implements {@link StreamingTransformer};
+     *  - chord by chord, if it is {@link ChordLocal} (constant memory);
+     *  - otherwise buffered, transforming the whole progression at end of stream.
+     */
+    public static StreamingTransformer of(Transformer t) {
+        if (t instanceof StreamingTransformer) return (StreamingTransformer) t;
+        if (t instanceof ChordLocal)           return downstream -> chordByChord(t, downstream);
+        return downstream -> buffered(t, downstream);
+    }
+
+    /**
+     * Chains transformers so chords flow through every stage in order.
+     */
+    public static StreamingTransformer chain(List<? extends Transformer> stages) {
+        return downstream -> {
+            ChordSink sink = downstream;
+            for (int i = stages.size() - 1; i >= 0; i--) {
+                sink = of(stages.get(i)).open(sink);
+            }
+            return sink;
+        };
+    }
+
+    /**
+     * Applies a {@link ChordLocal} transformer to each chord as it arrives.
+     */
+    public static ChordSink chordByChord(Transformer t, ChordSink downstream) {
+        return new ChordSink() {
+            @Override
+            public void accept(int[] chord) {
+                Cadence one = t.transform(new Cadence("", new int[][]{chord}, null, ""));
+                for (int[] row : one.intervals()) downstream.accept(row);
+            }
+
+            @Override
+            public void end() {
+                downstream.end();
+            }
+        };
+    }
+
+    /**
+     * Collects the whole stream and runs {@code t} on it at end of stream.
+     * Memory grows with the progression; used for transformers that reorder
+     * or optimize over all chords.
+     */
+    public static ChordSink buffered(Transformer t, ChordSink downstream) {
+        return new ChordSink() {
+            private final List<int[]> chords = new ArrayList<>();
+
+            @Override
+            public void accept(int[] chord) {
+                chords.add(chord);
+            }
+
+            @Override
+            public void end() {
+                int[][] grid = chords.toArray(new int[0][]);
+                chords.clear();
+                if (grid.length > 0) {
+                    for (int[] row : t.transform(new Cadence("", grid, null, "")).intervals()) {
+                        downstream.accept(row);
+                    }
+                }
+                downstream.end();
+            }
+        };
+    }
+
+    /**
+     * Runs {@code chords} through {@code st} and returns the output grid.
+     */
+    public static int[][] collect(StreamingTransformer st, int[][] chords) {
+        List<int[]> out = new ArrayList<>();
+        ChordSink sink = st.open(new ChordSink() {
+            @Override public void accept(int[] chord) { out.add(chord); }
+            @Override public void end()               {}
+        });
+        for (int[] chord : chords) sink.accept(chord);
+        sink.end();
+        return out.toArray(new int[0][]);
+    }
+}
@@ -0,0 +1,281 @@
+package com.music.transform;
+
+import com.music.domain.Cadence;
+import com.music.domain.CadenceView;
+import com.music.domain.PackedGrid;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, thread-safe memo of {@link Deterministic} transformer results.
+ *
+ * Entries are keyed by the transformer's {@link Deterministic#cacheKey()} and
+ * the input cadence's content (grid, type and description); the grid is
+ * located by a 64-bit content hash and confirmed by full comparison, so a
+ * hash collision can never return a wrong result. Stored input grids are
+ * kept as {@link PackedGrid}s, and {@link CadenceView} inputs and outputs
+ * are hashed, compared and sized row by row, never materialized; a view
+ * stored as a key is kept as is, since it is immutable. The least recently used
+ * entries are evicted once either the entry count or the total number of
+ * cached notes (inputs plus outputs) exceeds its limit.
+ *
+ * Returned cadences are shared between callers and must be treated as
+ * read-only. Transformers that are not {@link Deterministic} pass straight
+ * through and are counted as bypasses.
+ */
+public final class TransformCache {
+
+    private final int  maxEntries;
+    private final long maxNotes;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long notes;
+
+    private final AtomicLong hits      = new AtomicLong();
+    private final AtomicLong misses    = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong bypasses  = new AtomicLong();
+
+    /**
+     * @param maxEntries most results kept
+     * @param maxNotes   most grid cells kept across inputs and outputs
+     */
+    public TransformCache(int maxEntries, long maxNotes) {
+        if (maxEntries < 1 || maxNotes < 1) {
+            throw new IllegalArgumentException("cache limits must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.maxNotes   = maxNotes;
+    }
+
+    /**
+     * {@code t.transform(input)}, served from the cache when possible.
+     */
+    public Cadence transform(Transformer t, Cadence input) {
+        if (!(t instanceof Deterministic)) {
+            bypasses.incrementAndGet();
+            return t.transform(input);
+        }
+        Object cacheKey = ((Deterministic) t).cacheKey();
+        Key    probe;
+        if (input instanceof CadenceView) {
+            probe = new Key(cacheKey, (CadenceView) input, input.type(), input.description());
+        } else {
+            int[][] grid = input.intervals();
+            if (grid == null) {
+                bypasses.incrementAndGet();
+                return t.transform(input);
+            }
+            probe = new Key(cacheKey, grid, input.type(), input.description());
+        }
+        synchronized (entries) {
+            Entry cached = entries.get(probe);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached.out;
+            }
+        }
+        misses.incrementAndGet();
+
+        // computed outside the lock; racing callers may both compute, the last one wins
+        Cadence out      = t.transform(input);
+        long    outNotes = noteCount(out);
+        if (outNotes < 0) return out;
+        Key  key  = probe.detach();
+        long cost = key.noteCount() + outNotes;
+        if (cost > maxNotes) return out;
+
+        synchronized (entries) {
+            Entry prev = entries.put(key, new Entry(out, cost));
+            if (prev != null) notes -= prev.cost;
+            notes += cost;
+            Iterator<Entry> it = entries.values().iterator();
+            while ((entries.size() > maxEntries || notes > maxNotes) && it.hasNext()) {
+                notes -= it.next().cost;
+                it.remove();
+                evictions.incrementAndGet();
+            }
+        }
+        return out;
+    }
+
+    /**
+     * View of {@code t} whose results go through this cache.
+     */
+    public Transformer wrap(Transformer t) {
+        return input -> transform(t, input);
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            notes = 0;
+        }
+    }
+
+    public int size() {
+        synchronized (entries) { return entries.size(); }
+    }
+
+    public long hits()      { return hits.get();      }
+    public long misses()    { return misses.get();    }
+    public long evictions() { return evictions.get(); }
+    public long bypasses()  { return bypasses.get();  }
+
+    @Override
+    public String toString() {
+        return String.format("TransformCache[size=%d, hits=%d, misses=%d, evictions=%d, bypasses=%d]",
+            size(), hits(), misses(), evictions(), bypasses());
+    }
+
+    /**
+     * 64-bit content hash of a grid, row boundaries included.
+     */
+    public static long contentHash(int[][] grid) {
+        long h = 0xCBF29CE484222325L ^ grid.length;
+        for (int[] row : grid) {
+            h = mix(h ^ (0x100000000L | row.length));
+            for (int x : row) h = mix(h ^ (x & 0xFFFFFFFFL));
+        }
+        return h;
+    }
+
+    /**
+     * {@link #contentHash(int[][])} of the view's grid, decoded row by row.
+     */
+    public static long contentHash(CadenceView view) {
+        int   n   = view.rows();
+        int[] row = new int[view.maxRowLength()];
+        long  h   = 0xCBF29CE484222325L ^ n;
+        for (int i = 0; i < n; i++) {
+            int len = view.copyRow(i, row);
+            h = mix(h ^ (0x100000000L | len));
+            for (int j = 0; j < len; j++) h = mix(h ^ (row[j] & 0xFFFFFFFFL));
+        }
+        return h;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long noteCount(int[][] grid) {
+        long n = grid.length;                   // count empty rows too
+        for (int[] row : grid) n += row.length;
+        return n;
+    }
+
+    /** Notes of {@code c}'s grid, without materializing a view; -1 when it has none. */
+    private static long noteCount(Cadence c) {
+        if (c instanceof CadenceView) {
+            CadenceView v = (CadenceView) c;
+            return v.rows() + v.size();
+        }
+        int[][] grid = c.intervals();
+        return grid == null ? -1 : noteCount(grid);
+    }
+
+    /** A cached result and the notes it and its key account for. */
+    private static final class Entry {
+        final Cadence out;
+        final long    cost;
+
+        Entry(Cadence out, long cost) {
+            this.out  = out;
+            this.cost = cost;
+        }
+    }
+
+    private static final class Key {
+        private final Object      transformer;
+        private final int[][]     grid;     // lookup probes: the caller's grid
+        private final PackedGrid  packed;   // stored keys: a compact copy
+        private final CadenceView view;     // view inputs, probed and stored as is
+        private final String      type, description;
+        private final long        hash;
+
+        Key(Object transformer, int[][] grid, String type, String description) {
+            this(transformer, grid, null, null, type, description, contentHash(grid));
+        }
+
+        Key(Object transformer, CadenceView view, String type, String description) {
+            this(transformer, null, null, view, type, description, contentHash(view));
+        }
+
+        private Key(Object transformer, int[][] grid, PackedGrid packed, CadenceView view,
+                    String type, String description, long hash) {
+            this.transformer = transformer;
+            this.grid        = grid;
+            this.packed      = packed;
+            this.view        = view;
+            this.type        = type;
+            this.description = description;
+            this.hash        = hash;
+        }
+
+        /** Copy that no longer aliases the caller's grid, for storing. */
+        Key detach() {
+            if (grid == null) return this;
+            return new Key(transformer, null, PackedGrid.of(grid), null, type, description, hash);
+        }
+
+        long noteCount() {
+            if (view   != null) return view.rows() + view.size();
+            if (packed != null) return packed.rows() + packed.size();
+            return TransformCache.noteCount(grid);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash) * 31 + transformer.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return hash == k.hash
+                && transformer.equals(k.transformer)
+                && Objects.equals(type, k.type)
+                && Objects.equals(description, k.description)
+                && sameGrid(k);
+        }
+
+        private boolean sameGrid(Key k) {
+            if (view != null)   return k.sameRows(view);
+            if (k.view != null) return sameRows(k.view);
+            if (packed != null) return k.packed != null ? packed.equals(k.packed) : packed.matches(k.grid);
+            if (k.packed != null) return k.packed.matches(grid);
+            return Arrays.deepEquals(grid, k.grid);
+        }
+
+        /** Whether this key's grid equals {@code v}, compared row by row. */
+        private boolean sameRows(CadenceView v) {
+            int n = v.rows();
+            if (n != (view != null ? view.rows() : packed != null ? packed.rows() : grid.length)) return false;
+            int[] a = new int[v.maxRowLength()];
+            int[] b = view != null ? new int[view.maxRowLength()] : packed != null ? a.clone() : null;
+            for (int i = 0; i < n; i++) {
+                int len = v.copyRow(i, a);
+                int[] row;
+                if (grid != null) {
+                    row = grid[i];
+                    if (row.length != len) return false;
+                } else {
+                    if ((view != null ? view.rowLength(i) : packed.rowLength(i)) != len) return false;
+                    row = b;
+                    if (view != null) view.copyRow(i, b); else packed.copyRow(i, b);
+                }
+                for (int j = 0; j < len; j++) {
+                    if (a[j] != row[j]) return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -1,13 +1,15 @@
 package com.music.transform.impl;
 
 import com.music.domain.Cadence;
+import com.music.transform.ChordLocal;
+import com.music.transform.Deterministic;
 import com.music.transform.Transformer;
 
 /**
  * Add Ninth – append the 9th (root+14 semitones) to each chord.
  * [0,4,7] → [0,4,7,14]
  */
-public class AddNinthTransformer implements Transformer {
+public class AddNinthTransformer implements Transformer, ChordLocal, Deterministic {
     @Override
     public Cadence transform(Cadence c) {
         int[][] orig = c.intervals();
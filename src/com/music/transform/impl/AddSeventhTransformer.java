@@ -1,13 +1,15 @@
 package com.music.transform.impl;
 
 import com.music.domain.Cadence;
+import com.music.transform.ChordLocal;
+import com.music.transform.Deterministic;
 import com.music.transform.Transformer;
 
 /**
  * Add Seventh – append the 7th to each chord.
  * [0,4,7] → [0,4,7,10]
  */
-public class AddSeventhTransformer implements Transformer {
+public class AddSeventhTransformer implements Transformer, ChordLocal, Deterministic {
     @Override
     public Cadence transform(Cadence c) {
         int[][] orig = c.intervals();
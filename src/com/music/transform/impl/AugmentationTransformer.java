@@ -1,13 +1,15 @@
 package com.music.transform.impl;
 
 import com.music.domain.Cadence;
+import com.music.transform.Deterministic;
+import com.music.transform.ElementWise;
 import com.music.transform.Transformer;
 
 /**
  * Augmentation – double all intervals.
  * [2,5,9] → [4,10,18]
  */
-public class AugmentationTransformer implements Transformer {
+public class AugmentationTransformer implements Transformer, ElementWise, Deterministic {
     @Override
     public Cadence transform(Cadence c) {
         int[][] orig = c.intervals();
@@ -15,7 +17,7 @@ public class AugmentationTransformer implements Transformer {
         for (int i = 0; i < orig.length; i++) {
             out[i] = new int[orig[i].length];
             for (int j = 0; j < orig[i].length; j++) {
-                out[i][j] = orig[i][j] * 2;
+                out[i][j] = applyAsInt(orig[i][j]);
             }
         }
         return new Cadence(
@@ -25,4 +27,9 @@ public class AugmentationTransformer implements Transformer {
             "Augmentation – ×2 all intervals"
         );
     }
+
+    @Override
+    public int applyAsInt(int x) {
+        return x * 2;
+    }
 }
@@ -1,27 +1,57 @@
 package com.music.transform.impl;
 
 import com.music.domain.Cadence;
+import com.music.domain.CadenceView;
+import com.music.transform.ChordSink;
+import com.music.transform.Deterministic;
+import com.music.transform.RowMapping;
+import com.music.transform.StreamingTransformer;
 import com.music.transform.Transformer;
 
 /**
  * Cycle – rotate chord sequence forward one.
  * [[2,5,9],[7,11,14],[0,4,7]] →
  * [[7,11,14],[0,4,7],[2,5,9]]
+ * Returns an O(1) {@link CadenceView}; nothing is copied.
  */
-public class CycleTransformer implements Transformer {
+public class CycleTransformer implements Transformer, StreamingTransformer, RowMapping, Deterministic {
     @Override
     public Cadence transform(Cadence c) {
-        int[][] orig = c.intervals();
-        int n = orig.length;
-        int[][] out = new int[n][];
-        for (int i = 0; i < n; i++) {
-            out[i] = orig[(i + 1) % n];
-        }
-        return new Cadence(
+        return CadenceView.of(c).cycle(
             "Cycle of " + c.type(),
-            out,
-            null,
             "Cycle – rotate forward one step"
         );
     }
+
+    /**
+     * Streaming form: holds back only the first chord and emits it last.
+     */
+    @Override
+    public ChordSink open(ChordSink downstream) {
+        return new ChordSink() {
+            private int[] first;
+
+            @Override
+            public void accept(int[] chord) {
+                if (first == null) first = chord;
+                else               downstream.accept(chord);
+            }
+
+            @Override
+            public void end() {
+                if (first != null) downstream.accept(first);
+                downstream.end();
+            }
+        };
+    }
+
+    @Override
+    public int rows(int n) {
+        return n;
+    }
+
+    @Override
+    public int sourceRow(int i, int n) {
+        return (i + 1) % n;
+    }
 }
@@ -1,6 +1,9 @@
 package com.music.transform.impl;
 
 import com.music.domain.Cadence;
+import com.music.transform.ChordSink;
+import com.music.transform.Deterministic;
+import com.music.transform.StreamingTransformer;
 import com.music.transform.Transformer;
 
 import java.util.*;
@@ -11,7 +14,7 @@ import java.util.*;
  * Enforces twelve-tone usage across the progression:
  *  - No pitch class repeats until all 12 classes have been used.
  *  - Once a 12-tone row is completed, the next row is selected by comparing
- *    all Schoenberg-style transformations (P, R, I, RI and transpositions)
+ *    all 48 Schoenberg-style forms (P, R, I and RI, each in 12 transpositions)
  *    to the upcoming musical segment and choosing the closest match.
  *  - Notes are processed in musical order but the original chord grid is preserved:
  *    we substitute pitch classes within each chord instead of collapsing to monophony.
@@ -21,10 +24,34 @@ import java.util.*;
  *  - Pitch class is derived as (pitch % 12).
  *  - The transformer operates across the full texture (all voices together).
  */
-public class DodecafonizeTransformer implements Transformer {
+public class DodecafonizeTransformer implements Transformer, StreamingTransformer, Deterministic {
 
-    // Lookahead length to compare candidate next row against upcoming segment
-    private static final int LOOKAHEAD_NOTES = 6;
+    // Default lookahead length to compare candidate next row against upcoming segment
+    public static final int DEFAULT_LOOKAHEAD_NOTES = 6;
+
+    // Forms in the row matrix: P, R, I, RI × 12 transpositions
+    private static final int FORMS = 48;
+
+    private final int lookaheadNotes;
+
+    public DodecafonizeTransformer() {
+        this(DEFAULT_LOOKAHEAD_NOTES);
+    }
+
+    /**
+     * @param lookaheadNotes upcoming notes compared against candidate rows (0..12)
+     */
+    public DodecafonizeTransformer(int lookaheadNotes) {
+        if (lookaheadNotes < 0 || lookaheadNotes > 12) {
+            throw new IllegalArgumentException("lookaheadNotes must be within 0..12");
+        }
+        this.lookaheadNotes = lookaheadNotes;
+    }
+
+    @Override
+    public Object cacheKey() {
+        return Arrays.asList(getClass(), lookaheadNotes);
+    }
 
     @Override
     public Cadence transform(Cadence c) {
@@ -33,107 +60,177 @@ public class DodecafonizeTransformer implements Transformer {
             return c;
         }
 
-        // Flatten progression into a linear list of notes with positions
-        List<NotePos> linear = flatten(orig);
-
         // Output grid preserving original chord/voice structure
         int[][] out = deepCopy(orig);
 
-        // State for current row enforcement
-        Set<Integer> used = new HashSet<>();
-        List<Integer> currentRow = new ArrayList<>();
-        List<Integer> lastCompletedRow = null;
+        RowState state   = new RowState();
+        int[]    segment = new int[lookaheadNotes];
+
+        // Notes are walked in musical order (chord by chord, voice by voice)
+        for (int ci = 0; ci < orig.length; ci++) {
+            int[] chord = out[ci];
+            for (int vi = 0; vi < chord.length; vi++) {
+                int targetPc = mod12(orig[ci][vi]);
+                int chosenPc = state.choose(targetPc, chordMask(chord));
 
-        // If we complete a row, we will select the next row and iterate through it
-        List<Integer> nextRow = null;
-        int nextRowIndex = 0;
+                // Write chosen pitch class back into the output chord, preserving absolute octave as much as possible
+                chord[vi] = reassignToPitchClass(chord[vi], chosenPc);
 
-        for (int idx = 0; idx < linear.size(); idx++) {
-            NotePos np = linear.get(idx);
-            int targetPc = mod12(np.pitch);
+                // If we completed a 12-tone row, choose the next one against the upcoming segment
+                if (state.rowComplete()) {
+                    int segLen = collectLookaheadSegment(orig, ci, vi + 1, segment);
+                    state.startNextRow(segment, segLen);
+                }
+            }
+        }
 
+        return new Cadence(
+            "Dodecafonized " + c.type(),
+            out,
+            null,
+            "Dodecafonize – no pitch-class repetition until 12 are used; next rows chosen by best-fitting Schoenberg transformation"
+        );
+    }
+
+    /**
+     * Streaming form. A note is only rewritten once the lookahead notes after
+     * it have arrived (or the stream has ended), so at most a lookahead's
+     * worth of chords is held back; output matches {@link #transform}.
+     */
+    @Override
+    public ChordSink open(ChordSink downstream) {
+        return new ChordSink() {
+            private final RowState          state   = new RowState();
+            private final int[]             segment = new int[lookaheadNotes];
+            private final ArrayDeque<int[]> pending = new ArrayDeque<>();   // original chords
+            private final ArrayDeque<int[]> output  = new ArrayDeque<>();   // their rewritten copies
+            private int                     headVoice;                      // next voice to rewrite in the head chord
+            private int                     queuedNotes;                    // notes not yet rewritten
+
+            @Override
+            public void accept(int[] chord) {
+                pending.addLast(chord);
+                output.addLast(chord.clone());
+                queuedNotes += chord.length;
+                drain(false);
+            }
+
+            @Override
+            public void end() {
+                drain(true);
+                downstream.end();
+            }
+
+            private void drain(boolean last) {
+                while (!pending.isEmpty()) {
+                    int[] orig = pending.peekFirst();
+                    int[] out  = output.peekFirst();
+                    while (headVoice < orig.length) {
+                        if (!last && queuedNotes - 1 < lookaheadNotes) return;
+
+                        int chosenPc = state.choose(mod12(orig[headVoice]), chordMask(out));
+                        out[headVoice] = reassignToPitchClass(out[headVoice], chosenPc);
+                        headVoice++;
+                        queuedNotes--;
+
+                        if (state.rowComplete()) {
+                            state.startNextRow(segment, collectPendingSegment());
+                        }
+                    }
+                    pending.pollFirst();
+                    output.pollFirst();
+                    headVoice = 0;
+                    downstream.accept(out);
+                }
+            }
+
+            private int collectPendingSegment() {
+                int n = 0, vi = headVoice;
+                for (int[] chord : pending) {
+                    for (; vi < chord.length && n < segment.length; vi++) {
+                        segment[n++] = mod12(chord[vi]);
+                    }
+                    vi = 0;
+                }
+                return n;
+            }
+        };
+    }
+
+    /**
+     * Row enforcement state. Pitch-class sets are 12-bit masks (bit pc set) and
+     * rows are fixed int[12] buffers, so advancing one note allocates nothing.
+     */
+    private static final class RowState {
+        private int         used;                     // pcs used in the current row
+        private final int[] currentRow   = new int[12];
+        private int         rowLength;
+        private final int[] completedRow = new int[12];
+        private final int[] nextRow      = new int[12];
+        private int         nextRowIndex = 12;        // 12 = no preselected row to follow
+        private final int[] matrix       = new int[12 * FORMS];   // [position * FORMS + form]
+        private final int[] scores       = new int[FORMS];
+
+        /**
+         * Picks the pitch class for the next note and records it in the row.
+         *
+         * @param targetPc  pitch class of the original note
+         * @param chordMask pitch classes currently sounding in the note's chord
+         */
+        int choose(int targetPc, int chordMask) {
             int chosenPc;
 
             // If we are within a selected nextRow, keep consuming its sequence
-            if (nextRow != null && nextRowIndex < nextRow.size()) {
-                chosenPc = nextRow.get(nextRowIndex);
+            if (nextRowIndex < 12) {
+                chosenPc = nextRow[nextRowIndex];
                 nextRowIndex++;
 
                 // Avoid duplicate pitch class within the same chord (optional refinement)
                 // If this chord already contains chosenPc, advance to the next unused from nextRow
-                Set<Integer> chordPcs = chordPitchClasses(out[np.chordIndex]);
-                if (chordPcs.contains(chosenPc)) {
+                if ((chordMask & (1 << chosenPc)) != 0) {
                     int scan = nextRowIndex;
-                    while (scan < nextRow.size() && chordPcs.contains(nextRow.get(scan))) {
+                    while (scan < 12 && (chordMask & (1 << nextRow[scan])) != 0) {
                         scan++;
                     }
-                    if (scan < nextRow.size()) {
-                        chosenPc = nextRow.get(scan);
+                    if (scan < 12) {
+                        chosenPc = nextRow[scan];
                         nextRowIndex = scan + 1;
                     }
                 }
-
-                // Update row state
-                used.add(chosenPc);
-                currentRow.add(chosenPc);
-
             } else {
                 // Not currently following a preselected row: enforce no repeat until 12
-                if (!used.contains(targetPc)) {
-                    chosenPc = targetPc;
-                } else {
+                chosenPc = (used & (1 << targetPc)) == 0
+                    ? targetPc
                     // Choose the best unused pitch class close to target, avoiding duplicates within chord
-                    Set<Integer> chordPcs = chordPitchClasses(out[np.chordIndex]);
-                    chosenPc = chooseUnusedClosest(targetPc, used, chordPcs);
-                }
-                used.add(chosenPc);
-                currentRow.add(chosenPc);
+                    : chooseUnusedClosest(targetPc, used, chordMask);
             }
 
-            // Write chosen pitch class back into the output chord, preserving absolute octave as much as possible
-            out[np.chordIndex][np.voiceIndex] = reassignToPitchClass(out[np.chordIndex][np.voiceIndex], chosenPc);
-
-            // If we completed a 12-tone row, prepare next row selection
-            if (currentRow.size() == 12) {
-                lastCompletedRow = new ArrayList<>(currentRow);
-                used.clear();
-                currentRow.clear();
+            // Update row state
+            used |= 1 << chosenPc;
+            currentRow[rowLength++] = chosenPc;
+            return chosenPc;
+        }
 
-                // Choose next row by comparing candidates against the upcoming segment
-                List<Integer> segment = collectLookaheadSegment(linear, idx + 1, LOOKAHEAD_NOTES);
-                nextRow = chooseBestRow(lastCompletedRow, segment);
-                nextRowIndex = 0;
-            }
+        boolean rowComplete() {
+            return rowLength == 12;
         }
 
-        return new Cadence(
-            "Dodecafonized " + c.type(),
-            out,
-            null,
-            "Dodecafonize – no pitch-class repetition until 12 are used; next rows chosen by best-fitting Schoenberg transformation"
-        );
+        /**
+         * Closes the completed row and selects the next one by comparing
+         * candidates against the first {@code segLen} entries of {@code segment}.
+         */
+        void startNextRow(int[] segment, int segLen) {
+            System.arraycopy(currentRow, 0, completedRow, 0, 12);
+            used      = 0;
+            rowLength = 0;
+            buildMatrix(completedRow, matrix);
+            chooseBestRow(matrix, scores, segment, segLen, nextRow);
+            nextRowIndex = 0;
+        }
     }
 
     // --- Helpers ---
 
-    private static class NotePos {
-        final int chordIndex;
-        final int voiceIndex;
-        final int pitch;
-        NotePos(int ci, int vi, int p) { this.chordIndex = ci; this.voiceIndex = vi; this.pitch = p; }
-    }
-
-    private List<NotePos> flatten(int[][] grid) {
-        List<NotePos> linear = new ArrayList<>();
-        for (int ci = 0; ci < grid.length; ci++) {
-            int[] chord = grid[ci];
-            for (int vi = 0; vi < chord.length; vi++) {
-                linear.add(new NotePos(ci, vi, chord[vi]));
-            }
-        }
-        return linear;
-    }
-
     private int[][] deepCopy(int[][] src) {
         int[][] dst = new int[src.length][];
         for (int i = 0; i < src.length; i++) {
@@ -142,28 +239,28 @@ public class DodecafonizeTransformer implements Transformer {
         return dst;
     }
 
-    private int mod12(int p) {
+    private static int mod12(int p) {
         int m = p % 12;
         return m < 0 ? m + 12 : m;
     }
 
-    private Set<Integer> chordPitchClasses(int[] chord) {
-        Set<Integer> pcs = new HashSet<>();
-        for (int p : chord) pcs.add(mod12(p));
-        return pcs;
+    private static int chordMask(int[] chord) {
+        int mask = 0;
+        for (int p : chord) mask |= 1 << mod12(p);
+        return mask;
     }
 
     /**
      * Choose the unused pitch class that is closest to the target,
      * while also avoiding duplication within the current chord if possible.
      */
-    private int chooseUnusedClosest(int targetPc, Set<Integer> used, Set<Integer> chordPcs) {
+    private static int chooseUnusedClosest(int targetPc, int used, int chordMask) {
         int bestPc = -1;
         int bestScore = Integer.MAX_VALUE;
         for (int pc = 0; pc < 12; pc++) {
-            if (used.contains(pc)) continue;
+            if ((used & (1 << pc)) != 0) continue;
             int dist = circularDistance(pc, targetPc);
-            int penalty = (chordPcs != null && chordPcs.contains(pc)) ? 3 : 0;
+            int penalty = (chordMask & (1 << pc)) != 0 ? 3 : 0;
             int score = dist + penalty;
             if (score < bestScore) {
                 bestScore = score;
@@ -173,7 +270,7 @@ public class DodecafonizeTransformer implements Transformer {
         return bestPc >= 0 ? bestPc : targetPc;
     }
 
-    private int circularDistance(int a, int b) {
+    private static int circularDistance(int a, int b) {
         int d = Math.abs(a - b);
         return Math.min(d, 12 - d);
     }
@@ -182,13 +279,12 @@ public class DodecafonizeTransformer implements Transformer {
      * Reassign the given absolute pitch to the chosen pitch class,
      * preserving octave proximity (choose nearest octave for that pc).
      */
-    private int reassignToPitchClass(int originalPitch, int pc) {
+    private static int reassignToPitchClass(int originalPitch, int pc) {
         int base = originalPitch - mod12(originalPitch) + pc;
         // Evaluate three octave positions: base-12, base, base+12 and choose the closest to originalPitch
-        int best = base;
-        int[] candidates = new int[]{base - 12, base, base + 12};
-        int bestDist = Integer.MAX_VALUE;
-        for (int cand : candidates) {
+        int best = base - 12;
+        int bestDist = Math.abs(best - originalPitch);
+        for (int cand = base; cand <= base + 12; cand += 12) {
             int dist = Math.abs(cand - originalPitch);
             if (dist < bestDist) {
                 bestDist = dist;
@@ -196,117 +292,76 @@ public class DodecafonizeTransformer implements Transformer {
             }
         }
         return best;
-        }
+    }
 
-    private List<Integer> collectLookaheadSegment(List<NotePos> linear, int startIdx, int count) {
-        List<Integer> seg = new ArrayList<>();
-        for (int i = startIdx; i < linear.size() && seg.size() < count; i++) {
-            seg.add(mod12(linear.get(i).pitch));
+    /**
+     * Copies the pitch classes of up to {@code seg.length} original notes,
+     * starting at chord ci, voice vi, into {@code seg}; returns how many.
+     */
+    private static int collectLookaheadSegment(int[][] orig, int ci, int vi, int[] seg) {
+        int n = 0;
+        for (; ci < orig.length && n < seg.length; ci++, vi = 0) {
+            for (; vi < orig[ci].length && n < seg.length; vi++) {
+                seg[n++] = mod12(orig[ci][vi]);
+            }
         }
-        return seg;
+        return n;
     }
 
     // --- Row transformations and selection ---
 
-    private List<Integer> invert(List<Integer> row) {
-        List<Integer> inv = new ArrayList<>();
-        int axis = row.get(0); // invert around first pitch class
-        for (int pc : row) {
-            int interval = mod12(pc - axis);
-            inv.add(mod12(axis - interval));
+    /**
+     * Fills the 48-form twelve-tone matrix of {@code row}, position-major so
+     * that all forms for one position are contiguous. Form order doubles as
+     * tie-break preference: P, R, I, RI, then P+1..P+11, R+1..R+11,
+     * I+1..I+11, RI+1..RI+11 (I is inverted around the row's first pitch class).
+     */
+    private static void buildMatrix(int[] row, int[] matrix) {
+        int axis = row[0];
+        for (int i = 0; i < 12; i++) {
+            int base = i * FORMS;
+            int p  = row[i];
+            int r  = row[11 - i];
+            int in = mod12(2 * axis - p);
+            int ri = mod12(2 * axis - r);
+            matrix[base]     = p;
+            matrix[base + 1] = r;
+            matrix[base + 2] = in;
+            matrix[base + 3] = ri;
+            for (int t = 1; t < 12; t++) {
+                matrix[base + 3 + t]  = (p  + t) % 12;
+                matrix[base + 14 + t] = (r  + t) % 12;
+                matrix[base + 25 + t] = (in + t) % 12;
+                matrix[base + 36 + t] = (ri + t) % 12;
+            }
         }
-        return inv;
-    }
-
-    private List<Integer> retrograde(List<Integer> row) {
-        List<Integer> ret = new ArrayList<>(row);
-        Collections.reverse(ret);
-        return ret;
-    }
-
-    private List<Integer> transpose(List<Integer> row, int shift) {
-        List<Integer> trans = new ArrayList<>(row.size());
-        for (int pc : row) trans.add(mod12(pc + shift));
-        return trans;
     }
 
     /**
-     * Choose the next row transformation that best matches the upcoming segment.
-     * Candidates: P, R, I, RI, and transpositions of P (1..11).
-     * Tie-breaker preference: P > R > I > RI > smallest transposition.
+     * Choose the next row form that best matches the upcoming segment
+     * and write it into {@code dst}. Scores for all 48 forms are accumulated
+     * one segment position at a time over contiguous matrix columns; the
+     * first form (in matrix order) with the lowest score wins.
      */
-    private List<Integer> chooseBestRow(List<Integer> baseRow, List<Integer> segment) {
-        List<List<Integer>> candidates = new ArrayList<>();
-        List<String> labels = new ArrayList<>();
-
-        // P
-        candidates.add(baseRow);
-        labels.add("P");
-        // R
-        candidates.add(retrograde(baseRow));
-        labels.add("R");
-        // I
-        candidates.add(invert(baseRow));
-        labels.add("I");
-        // RI
-        candidates.add(retrograde(invert(baseRow)));
-        labels.add("RI");
-        // Transpositions of P
-        for (int t = 1; t < 12; t++) {
-            candidates.add(transpose(baseRow, t));
-            labels.add("P+" + t);
-        }
-
-        int bestScore = Integer.MAX_VALUE;
-        int bestIdx = 0;
+    private static void chooseBestRow(int[] matrix, int[] scores, int[] segment, int segLen, int[] dst) {
+        int len = Math.min(12, segLen);
 
-        for (int i = 0; i < candidates.size(); i++) {
-            int score = distanceScore(candidates.get(i), segment);
-            if (score < bestScore) {
-                bestScore = score;
-                bestIdx = i;
-            } else if (score == bestScore) {
-                // Tie-breaker by label order preference
-                if (prefer(labels.get(i), labels.get(bestIdx))) {
-                    bestIdx = i;
-                }
+        Arrays.fill(scores, len == 0 ? Integer.MAX_VALUE / 2 : 0);
+        for (int i = 0; i < len; i++) {
+            int base = i * FORMS;
+            int b    = segment[i];
+            for (int f = 0; f < FORMS; f++) {
+                int d = Math.abs(matrix[base + f] - b);
+                scores[f] += Math.min(d, 12 - d);
             }
         }
-        return candidates.get(bestIdx);
-    }
 
-    private boolean prefer(String a, String b) {
-        // Preference order: P, R, I, RI, then smaller transposition
-        int rankA = rankLabel(a);
-        int rankB = rankLabel(b);
-        if (rankA != rankB) return rankA < rankB;
-        // If both are transpositions, prefer smaller shift
-        if (a.startsWith("P+") && b.startsWith("P+")) {
-            int ta = Integer.parseInt(a.substring(2));
-            int tb = Integer.parseInt(b.substring(2));
-            return ta < tb;
+        int bestForm = 0;
+        for (int f = 1; f < FORMS; f++) {
+            if (scores[f] < scores[bestForm]) bestForm = f;
         }
-        return false;
-    }
-
-    private int rankLabel(String label) {
-        if ("P".equals(label)) return 0;
-        if ("R".equals(label)) return 1;
-        if ("I".equals(label)) return 2;
-        if ("RI".equals(label)) return 3;
-        if (label.startsWith("P+")) return 4;
-        return 5;
-    }
-
-    private int distanceScore(List<Integer> candidate, List<Integer> segment) {
-        int len = Math.min(candidate.size(), segment.size());
-        if (len == 0) return Integer.MAX_VALUE / 2;
-        int sum = 0;
-        for (int i = 0; i < len; i++) {
-            int a = candidate.get(i);
-            int b = segment.get(i);
-            sum += circularDistance(a, b);
+        for (int i = 0; i < 12; i++) {
+            dst[i] = matrix[i * FORMS + bestForm];
         }
-        return sum;
     }
 }
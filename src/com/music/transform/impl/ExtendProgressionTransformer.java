@@ -1,28 +1,33 @@
 package com.music.transform.impl;
 
 import com.music.domain.Cadence;
+import com.music.domain.CadenceView;
+import com.music.transform.Deterministic;
+import com.music.transform.RowMapping;
 import com.music.transform.Transformer;
 
 /**
  * Extend Progression – repeat entire progression twice.
  * [[2,5,9],[7,11,14],[0,4,7]] →
  * [[2,5,9],[7,11,14],[0,4,7],[2,5,9],[7,11,14],[0,4,7]]
+ * Returns an O(1) {@link CadenceView}; nothing is copied.
  */
-public class ExtendProgressionTransformer implements Transformer {
+public class ExtendProgressionTransformer implements Transformer, RowMapping, Deterministic {
     @Override
     public Cadence transform(Cadence c) {
-        int[][] orig = c.intervals();
-        int len = orig.length;
-        int[][] out = new int[len * 2][];
-        for (int i = 0; i < len; i++) {
-            out[i] = orig[i];
-            out[i + len] = orig[i];
-        }
-        return new Cadence(
+        return CadenceView.of(c).extend(
             "Extended " + c.type(),
-            out,
-            null,
             "Extend Progression – progression repeated twice"
         );
     }
+
+    @Override
+    public int rows(int n) {
+        return n * 2;
+    }
+
+    @Override
+    public int sourceRow(int i, int n) {
+        return i % n;
+    }
 }
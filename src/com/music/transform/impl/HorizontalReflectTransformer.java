@@ -1,6 +1,9 @@
 package com.music.transform.impl;
 
 import com.music.domain.Cadence;
+import com.music.transform.Deterministic;
+import com.music.transform.Involution;
+import com.music.transform.RowMapping;
 import com.music.transform.Transformer;
 
 /**
@@ -8,7 +11,7 @@ import com.music.transform.Transformer;
  * E.g. [[2,5,9],[7,11,14],[0,4,7]] →
  *      [[0,4,7],[7,11,14],[2,5,9]]
  */
-public class HorizontalReflectTransformer implements Transformer {
+public class HorizontalReflectTransformer implements Transformer, RowMapping, Involution, Deterministic {
 
     @Override
     public Cadence transform(Cadence input) {
@@ -27,4 +30,14 @@ public class HorizontalReflectTransformer implements Transformer {
             "Horizontal reflect – reverse chord sequence"
         );
     }
+
+    @Override
+    public int rows(int n) {
+        return n;
+    }
+
+    @Override
+    public int sourceRow(int i, int n) {
+        return n - 1 - i;
+    }
 }
@@ -1,14 +1,21 @@
 package com.music.transform.impl;
 
 import com.music.domain.Cadence;
+import com.music.transform.Deterministic;
+import com.music.transform.ElementWise;
 import com.music.transform.Transformer;
 
 /**
  * No-op: returns its input unchanged.
  */
-public class IdentityTransformer implements Transformer {
+public class IdentityTransformer implements Transformer, ElementWise, Deterministic {
     @Override
     public Cadence transform(Cadence c) {
         return c;
     }
+
+    @Override
+    public int applyAsInt(int x) {
+        return x;
+    }
 }
@@ -1,13 +1,16 @@
 package com.music.transform.impl;
 
 import com.music.domain.Cadence;
+import com.music.transform.ChordReversal;
+import com.music.transform.Deterministic;
+import com.music.transform.Involution;
 import com.music.transform.Transformer;
 
 /**
  * Inversion – mirror each chord’s intervals.
  * [2,5,9] → [9,5,2]
  */
-public class InverterTransformer implements Transformer {
+public class InverterTransformer implements Transformer, ChordReversal, Involution, Deterministic {
     @Override
     public Cadence transform(Cadence c) {
         int[][] orig = c.intervals();
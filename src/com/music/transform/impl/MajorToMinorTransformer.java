@@ -1,13 +1,15 @@
 package com.music.transform.impl;
 
 import com.music.domain.Cadence;
+import com.music.transform.ChordLocal;
+import com.music.transform.Deterministic;
 import com.music.transform.Transformer;
 
 /**
  * Major→Minor – lower the 3rd by one semitone.
  * [7,11,14] → [7,10,14]
  */
-public class MajorToMinorTransformer implements Transformer {
+public class MajorToMinorTransformer implements Transformer, ChordLocal, Deterministic {
     @Override
     public Cadence transform(Cadence c) {
         int[][] orig = c.intervals();
@@ -1,13 +1,16 @@
 package com.music.transform.impl;
 
 import com.music.domain.Cadence;
+import com.music.transform.Deterministic;
+import com.music.transform.ElementWise;
+import com.music.transform.Involution;
 import com.music.transform.Transformer;
 
 /**
  * Negation – reflect intervals around zero.
  * [2,5,9] → [-2,-5,-9]
  */
-public class NegationTransformer implements Transformer {
+public class NegationTransformer implements Transformer, ElementWise, Involution, Deterministic {
     @Override
     public Cadence transform(Cadence c) {
         int[][] orig = c.intervals();
@@ -15,7 +18,7 @@ public class NegationTransformer implements Transformer {
         for (int i = 0; i < orig.length; i++) {
             out[i] = new int[orig[i].length];
             for (int j = 0; j < orig[i].length; j++) {
-                out[i][j] = -orig[i][j];
+                out[i][j] = applyAsInt(orig[i][j]);
             }
         }
         return new Cadence(
@@ -25,4 +28,9 @@ public class NegationTransformer implements Transformer {
             "Negation – x → -x"
         );
     }
+
+    @Override
+    public int applyAsInt(int x) {
+        return -x;
+    }
 }
@@ -1,6 +1,8 @@
 package com.music.transform.impl;
 
 import com.music.domain.Cadence;
+import com.music.transform.ChordLocal;
+import com.music.transform.Deterministic;
 import com.music.transform.Transformer;
 
 import java.util.Arrays;
@@ -9,7 +11,7 @@ import java.util.Arrays;
  * Polynomial Derivative – fits a polynomial to each chord,
  * computes its symbolic derivative, and evaluates it at each original index.
  */
-public class PolynomialDerivativeTransformer implements Transformer {
+public class PolynomialDerivativeTransformer implements Transformer, ChordLocal, Deterministic {
     @Override
     public Cadence transform(Cadence c) {
         int[][] input = c.intervals();
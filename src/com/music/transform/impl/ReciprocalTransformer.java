@@ -1,6 +1,9 @@
 package com.music.transform.impl;
 
 import com.music.domain.Cadence;
+import com.music.transform.Deterministic;
+import com.music.transform.ElementWise;
+import com.music.transform.Involution;
 import com.music.transform.Transformer;
 
 /**
@@ -13,7 +16,7 @@ import com.music.transform.Transformer;
  *  - [0, 12, 24]    -> [0, 12, 24]   (octaves respected)
  *  - [-1, 11, 13]   -> [-11, 1, 11]  (negatives handled)
  */
-public class ReciprocalTransformer implements Transformer {
+public class ReciprocalTransformer implements Transformer, ElementWise, Involution, Deterministic {
     @Override
     public Cadence transform(Cadence c) {
         int[][] in  = c.intervals();
@@ -22,11 +25,7 @@ public class ReciprocalTransformer implements Transformer {
         for (int i = 0; i < in.length; i++) {
             out[i] = new int[in[i].length];
             for (int j = 0; j < in[i].length; j++) {
-                int x   = in[i][j];
-                int oct = Math.floorDiv(x, 12);
-                int pc  = Math.floorMod(x, 12);          // 0..11
-                int rpc = (12 - pc) % 12;                // reciprocal pitch class, 0..11
-                out[i][j] = oct * 12 + rpc;              // preserve octave
+                out[i][j] = applyAsInt(in[i][j]);
             }
         }
 
@@ -37,4 +36,12 @@ public class ReciprocalTransformer implements Transformer {
             "Reciprocal – (12 − pc)"
         );
     }
+
+    @Override
+    public int applyAsInt(int x) {
+        int oct = Math.floorDiv(x, 12);
+        int pc  = Math.floorMod(x, 12);          // 0..11
+        int rpc = (12 - pc) % 12;                // reciprocal pitch class, 0..11
+        return oct * 12 + rpc;                   // preserve octave
+    }
 }
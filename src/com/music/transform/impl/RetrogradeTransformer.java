@@ -1,27 +1,34 @@
 package com.music.transform.impl;
 
 import com.music.domain.Cadence;
+import com.music.domain.CadenceView;
+import com.music.transform.Deterministic;
+import com.music.transform.Involution;
+import com.music.transform.RowMapping;
 import com.music.transform.Transformer;
 
 /**
  * Retrograde – reverse chord order.
  * [[2,5,9],[7,11,14],[0,4,7]] →
  * [[0,4,7],[7,11,14],[2,5,9]]
+ * Returns an O(1) {@link CadenceView}; nothing is copied.
  */
-public class RetrogradeTransformer implements Transformer {
+public class RetrogradeTransformer implements Transformer, RowMapping, Involution, Deterministic {
     @Override
     public Cadence transform(Cadence c) {
-        int[][] orig = c.intervals();
-        int n = orig.length;
-        int[][] out = new int[n][];
-        for (int i = 0; i < n; i++) {
-            out[i] = orig[n - 1 - i];
-        }
-        return new Cadence(
+        return CadenceView.of(c).retrograde(
             "Retrograde of " + c.type(),
-            out,
-            null,
             "Retrograde – reverse progression"
         );
     }
+
+    @Override
+    public int rows(int n) {
+        return n;
+    }
+
+    @Override
+    public int sourceRow(int i, int n) {
+        return n - 1 - i;
+    }
 }
@@ -1,16 +1,28 @@
 package com.music.transform.impl;
 
 import com.music.domain.Cadence;
+import com.music.domain.CadenceView;
+import com.music.transform.Deterministic;
 import com.music.transform.Transformer;
 
 /**
  * Transpose Rows⇄Cols – swap rows and columns.
  * [[2,5,9],[7,11,14],[0,4,7]] →
  * [[2,7,0],[5,11,4],[9,14,7]]
+ * Rectangular grids come back as an O(1) {@link CadenceView}; ragged ones
+ * are copied, using the first row's length as the column count.
  */
-public class TransposeMatrixTransformer implements Transformer {
+public class TransposeMatrixTransformer implements Transformer, Deterministic {
     @Override
     public Cadence transform(Cadence c) {
+        String type        = "Transposed Rows⇄Cols of " + c.type();
+        String description = "Transpose Rows⇄Cols – swap rows and columns";
+
+        CadenceView view = CadenceView.of(c);
+        if (view.isRectangular() && view.rows() > 0) {
+            return view.transpose(type, description);
+        }
+
         int[][] orig = c.intervals();
         int rows = orig.length;
         int cols = orig[0].length;
@@ -20,11 +32,6 @@ public class TransposeMatrixTransformer implements Transformer {
                 out[j][i] = orig[i][j];
             }
         }
-        return new Cadence(
-            "Transposed Rows⇄Cols of " + c.type(),
-            out,
-            null,
-            "Transpose Rows⇄Cols – swap rows and columns"
-        );
+        return new Cadence(type, out, null, description);
     }
 }
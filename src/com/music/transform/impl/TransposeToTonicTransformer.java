@@ -1,7 +1,10 @@
 package com.music.transform.impl;
 
 import com.music.domain.Cadence;
+import com.music.transform.Deterministic;
+import com.music.transform.ElementWise;
 import com.music.transform.Transformer;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.HashMap;
 
@@ -9,7 +12,7 @@ import java.util.HashMap;
  * Adds the tonic’s semitone index (C→0, C#→1, … B→11)
  * to raw C-based offsets. Outputs pure semitone grids.
  */
-public class TransposeToTonicTransformer implements Transformer {
+public class TransposeToTonicTransformer implements Transformer, ElementWise, Deterministic {
 
     private static final Map<String,Integer> TONIC_SHIFTS = new HashMap<>();
     static {
@@ -42,11 +45,21 @@ public class TransposeToTonicTransformer implements Transformer {
         for (int i = 0; i < src.length; i++) {
             dst[i] = new int[src[i].length];
             for (int j = 0; j < src[i].length; j++) {
-                dst[i][j] = src[i][j] + shift;
+                dst[i][j] = applyAsInt(src[i][j]);
             }
         }
 
         // Cadence(type, semitoneGrid, spelledNotes=null, description)
         return new Cadence(raw.type(), dst, null, raw.description());
     }
+
+    @Override
+    public int applyAsInt(int x) {
+        return x + shift;
+    }
+
+    @Override
+    public Object cacheKey() {
+        return Arrays.asList(getClass(), shift);
+    }
 }
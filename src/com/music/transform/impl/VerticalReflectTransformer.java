@@ -1,13 +1,16 @@
 package com.music.transform.impl;
 
 import com.music.domain.Cadence;
+import com.music.transform.ChordReversal;
+import com.music.transform.Deterministic;
+import com.music.transform.Involution;
 import com.music.transform.Transformer;
 
 /**
  * Vertical Reflect – reverse each chord’s intervals.
  * E.g. [a,b,c] → [c,b,a]
  */
-public class VerticalReflectTransformer implements Transformer {
+public class VerticalReflectTransformer implements Transformer, ChordReversal, Involution, Deterministic {
 
     @Override
     public Cadence transform(Cadence input) {
@@ -1,9 +1,14 @@
 package com.music.transform.impl;
 
 import com.music.domain.Cadence;
+import com.music.transform.ChordSink;
+import com.music.transform.Deterministic;
+import com.music.transform.StreamingTransformer;
+import com.music.transform.StreamingTransformers;
 import com.music.transform.Transformer;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * VoiceLeadingOptimizerTransformer
@@ -16,27 +21,84 @@ import java.util.*;
  *  - Penalize repeating the same pitch class in the same voice when alternatives exist
  *
  * Algorithm:
- *  1. For each transition, generate all permutations of the target chord's notes (same size as previous chord).
- *  2. Filter permutations that violate hard rules (parallels, crossing, tessitura).
- *  3. Score remaining permutations based on movement and stylistic preferences.
- *  4. Choose the lowest-scoring candidate.
+ *  1. For each transition, assign the target chord's notes (same size as previous chord)
+ *     to voices bottom-up with a branch-and-bound search.
+ *  2. Cut a branch as soon as a hard rule fails on the voices assigned so far
+ *     (parallels, crossing, tessitura), or when a note left unassigned lies below
+ *     the current voice and could only be placed by crossing.
+ *  3. Cut a branch when its partial soft score already reaches the best complete one.
+ *  4. Choose the lowest-scoring complete assignment.
+ *  Because crossing is checked per voice, at most O(n²) nodes are visited instead of n!
+ *  permutations; the number of cut branches is reported by {@link #prunedCandidates()}.
+ *
+ * Global mode (beam width > 0):
+ *  Instead of fixing each chord greedily, every chord offers a small candidate set
+ *  (its sorted notes, close-position inversions, each also an octave down and up, and
+ *  the notes as given) and a beam search keeps the cheapest partial paths across the
+ *  whole progression. A transition costs its soft score plus a fixed penalty when it
+ *  breaks a hard rule. Transition scores are cached per pair of distinct chords, so
+ *  repeated progressions reuse them; runtime is linear in length for a fixed width.
  *
  * Assumptions:
  *  - Input chords are arrays of absolute pitches (e.g., MIDI numbers).
  *  - The lowest index (0) is treated as the bass; highest index as the soprano.
  *  - Tessitura ranges are generic defaults; adjust as needed.
  */
-public class VoiceLeadingOptimizerTransformer implements Transformer {
+public class VoiceLeadingOptimizerTransformer implements Transformer, StreamingTransformer, Deterministic {
 
     // Generic tessitura ranges for SATB-like spacing; adjust to your repertoire
     private static final int[] MIN_TESSITURA = new int[]{40, 48, 55, 60}; // Bass, Tenor, Alto, Soprano
     private static final int[] MAX_TESSITURA = new int[]{58, 67, 74, 84};
 
+    // Added to a transition that breaks a hard rule in global mode
+    private static final int HARD_RULE_PENALTY = 10_000;
+
+    // 0 = greedy chord-by-chord; otherwise number of paths kept by the global beam search
+    private final int beamWidth;
+
+    // Branches cut by the search, cumulative over every transform on this instance
+    private final AtomicLong pruned = new AtomicLong();
+
+    /**
+     * Number of partial voice assignments discarded by the branch-and-bound
+     * search since this transformer was created.
+     */
+    public long prunedCandidates() {
+        return pruned.get();
+    }
+
+    /** Greedy mode: each chord is voiced against the previous result only. */
+    public VoiceLeadingOptimizerTransformer() {
+        this(0);
+    }
+
+    /**
+     * @param beamWidth paths kept per chord by the global search; 0 selects greedy mode
+     */
+    public VoiceLeadingOptimizerTransformer(int beamWidth) {
+        if (beamWidth < 0) throw new IllegalArgumentException("beamWidth must be >= 0");
+        this.beamWidth = beamWidth;
+    }
+
+    @Override
+    public Object cacheKey() {
+        return Arrays.asList(getClass(), beamWidth);
+    }
+
     @Override
     public Cadence transform(Cadence c) {
         int[][] chords = c.intervals();
         if (chords == null || chords.length == 0) return c;
 
+        if (beamWidth > 0) {
+            return new Cadence(
+                "Voice Leading Optimized " + c.type(),
+                new BeamSearch(chords).run(),
+                null,
+                "Voice Leading Optimization – traditional contrapuntal rules applied across the whole progression"
+            );
+        }
+
         List<int[]> optimized = new ArrayList<>();
         optimized.add(chords[0].clone()); // keep first chord
 
@@ -59,6 +121,31 @@ public class VoiceLeadingOptimizerTransformer implements Transformer {
         );
     }
 
+    /**
+     * Streaming form. Greedy mode keeps only the previously emitted chord;
+     * global mode needs the whole progression and buffers it.
+     */
+    @Override
+    public ChordSink open(ChordSink downstream) {
+        if (beamWidth > 0) return StreamingTransformers.buffered(this, downstream);
+        return new ChordSink() {
+            private int[] prev;
+
+            @Override
+            public void accept(int[] chord) {
+                prev = prev == null
+                    ? chord.clone()
+                    : chooseBestVoiceLeading(prev, alignVoices(chord, prev.length));
+                downstream.accept(prev);
+            }
+
+            @Override
+            public void end() {
+                downstream.end();
+            }
+        };
+    }
+
     private int[] alignVoices(int[] chord, int targetSize) {
         if (chord.length == targetSize) return chord.clone();
         int[] out = new int[targetSize];
@@ -82,146 +169,315 @@ public class VoiceLeadingOptimizerTransformer implements Transformer {
     }
 
     private int[] chooseBestVoiceLeading(int[] prev, int[] next) {
-        List<int[]> candidates = generatePermutations(next);
-        int[] best = next.clone();
-        int bestScore = Integer.MAX_VALUE;
+        Search search = new Search(prev, next);
+        search.assign(0, 0);
+        pruned.addAndGet(search.pruned);
+        return search.best != null ? search.best : next.clone();
+    }
 
-        for (int[] cand : candidates) {
-            if (violatesHardRules(prev, cand)) continue;
-            int score = scorePermutation(prev, cand);
-            if (score < bestScore) {
-                bestScore = score;
-                best = cand.clone();
+    /**
+     * Branch-and-bound state for one transition. Notes are tried in ascending
+     * order and equal pitches are tried once per voice, matching the duplicate
+     * filtering of the old permutation list.
+     */
+    private final class Search {
+        final int[]     prev;
+        final int[]     notes;     // target notes, sorted
+        final boolean[] taken;
+        final int[]     cand;
+        int[]           best;
+        int             bestScore = Integer.MAX_VALUE;
+        long            pruned;
+
+        Search(int[] prev, int[] next) {
+            this.prev  = prev;
+            this.notes = next.clone();
+            Arrays.sort(this.notes);
+            this.taken = new boolean[notes.length];
+            this.cand  = new int[notes.length];
+        }
+
+        void assign(int voice, int partial) {
+            int n = notes.length;
+            if (voice == n) {
+                int score = partial + contraryMotionPenalty(prev, cand);
+                if (score < bestScore) {
+                    bestScore = score;
+                    best      = cand.clone();
+                }
+                return;
+            }
+            for (int k = 0; k < n; k++) {
+                if (taken[k]) continue;
+                if (k > 0 && notes[k] == notes[k - 1] && !taken[k - 1]) continue;
+
+                int note = notes[k];
+                cand[voice] = note;
+                // Besides the hard rules on this voice, no unassigned note may lie
+                // below it (it could only go above by crossing)
+                if (violatesHardRules(prev, cand, voice) || lowestFreeBelow(note, k)) {
+                    pruned++;
+                    continue;
+                }
+                int bound = partial + voiceScore(prev, cand, voice);
+                if (bound >= bestScore) {
+                    pruned++;
+                    continue;
+                }
+                taken[k] = true;
+                assign(voice + 1, bound);
+                taken[k] = false;
+            }
+        }
+
+        private boolean lowestFreeBelow(int note, int skip) {
+            for (int k = 0; k < notes.length; k++) {
+                if (k != skip && !taken[k] && notes[k] < note) return true;
             }
+            return false;
         }
-        return best;
     }
 
     /**
-     * Hard rules: parallel fifths/octaves, voice crossing, tessitura.
+     * Global mode: beam search over per-chord candidate voicings. All chords
+     * are aligned to the size of the first, which is kept as given.
      */
-    private boolean violatesHardRules(int[] prev, int[] cand) {
-        // Parallel fifths/octaves
-        if (hasParallelFifthOrOctave(prev, cand)) return true;
+    private final class BeamSearch {
+        final int[][]                   chords;
+        final Map<IntArrayKey, Integer> ids        = new HashMap<>();
+        final List<List<int[]>>         candidates = new ArrayList<>();
+        final Map<Long, int[]>          tables     = new HashMap<>();
 
-        // Voice crossing: enforce ascending order bass->soprano
-        if (!isNonCrossing(cand)) return true;
+        BeamSearch(int[][] chords) {
+            this.chords = chords;
+        }
 
-        // Tessitura bounds (if chord is 4 voices; else relax)
-        if (cand.length == 4 && !inTessitura(cand)) return true;
+        int[][] run() {
+            int   len     = chords.length;
+            int   size    = chords[0].length;
+            int[] chordId = new int[len];
 
-        return false;
-    }
+            // Chord 0 is fixed; later chords share candidate lists by content
+            List<int[]> first = new ArrayList<>();
+            first.add(chords[0].clone());
+            candidates.add(first);
+            for (int i = 1; i < len; i++) {
+                int[] aligned = alignVoices(chords[i], size);
+                Integer id = ids.get(new IntArrayKey(aligned));
+                if (id == null) {
+                    id = candidates.size();
+                    ids.put(new IntArrayKey(aligned), id);
+                    candidates.add(candidatesFor(aligned));
+                }
+                chordId[i] = id;
+            }
 
-    private boolean hasParallelFifthOrOctave(int[] prev, int[] cand) {
-        int n = Math.min(prev.length, cand.length);
-        for (int i = 0; i < n; i++) {
-            for (int j = i + 1; j < n; j++) {
-                int ip = ((prev[i] - prev[j]) % 12 + 12) % 12;
-                int ic = ((cand[i] - cand[j]) % 12 + 12) % 12;
-                if ((ip == 7 || ip == 0) && ip == ic) return true;
+            int[][] keptState  = new int[len][];
+            int[][] keptParent = new int[len][];
+            long[]  beamCost   = {0};   // long: HARD_RULE_PENALTY per transition would overflow an int
+            keptState[0]  = new int[]{0};
+            keptParent[0] = new int[]{-1};
+
+            for (int i = 1; i < len; i++) {
+                int   p     = candidates.get(chordId[i - 1]).size();
+                int   m     = candidates.get(chordId[i]).size();
+                int[] table = table(chordId[i - 1], chordId[i], p, m);
+
+                long[] best   = new long[m];
+                int[]  parent = new int[m];
+                Arrays.fill(best, Long.MAX_VALUE);
+                int[] prevState = keptState[i - 1];
+                for (int b = 0; b < prevState.length; b++) {
+                    int k = prevState[b];
+                    for (int s = 0; s < m; s++) {
+                        long cost = beamCost[b] + cost(table, chordId[i - 1], chordId[i], k, s, m);
+                        if (cost < best[s]) {
+                            best[s]   = cost;
+                            parent[s] = b;
+                        }
+                    }
+                }
+
+                // Keep the beamWidth cheapest states, cheapest first, by insertion
+                // into a short primitive list (stable: earlier candidates win ties)
+                int   keep   = Math.min(beamWidth, m);
+                int[] order  = new int[keep];
+                int   filled = 0;
+                for (int s = 0; s < m; s++) {
+                    if (filled == keep && best[s] >= best[order[keep - 1]]) continue;
+                    int j = filled < keep ? filled++ : keep - 1;
+                    for (; j > 0 && best[order[j - 1]] > best[s]; j--) order[j] = order[j - 1];
+                    order[j] = s;
+                }
+                keptState[i]  = new int[keep];
+                keptParent[i] = new int[keep];
+                beamCost      = new long[keep];
+                for (int j = 0; j < keep; j++) {
+                    int s = order[j];
+                    keptState[i][j]  = s;
+                    keptParent[i][j] = parent[s];
+                    beamCost[j]      = best[s];
+                }
+            }
+
+            // Beam entries are sorted, so entry 0 of the last chord ends the cheapest path
+            int[][] out = new int[len][];
+            int b = 0;
+            for (int i = len - 1; i >= 0; i--) {
+                out[i] = candidates.get(chordId[i]).get(keptState[i][b]).clone();
+                b = keptParent[i][b];
             }
+            return out;
+        }
+
+        /**
+         * Candidate voicings for one aligned chord: sorted notes, close-position
+         * inversions, each shifted an octave down and up, and the notes as given
+         * (the greedy fallback).
+         */
+        private List<int[]> candidatesFor(int[] aligned) {
+            int[] sorted = aligned.clone();
+            Arrays.sort(sorted);
+            List<int[]> out = new ArrayList<>();
+            addDistinct(out, sorted);
+            for (int r = 1; r < sorted.length; r++) {
+                int[] inv = sorted.clone();
+                for (int j = 0; j < r; j++) inv[j] += 12;
+                Arrays.sort(inv);
+                addDistinct(out, inv);
+            }
+            int base = out.size();
+            for (int k = 0; k < base; k++) {
+                for (int shift : new int[]{-12, 12}) {
+                    int[] moved = out.get(k).clone();
+                    for (int j = 0; j < moved.length; j++) moved[j] += shift;
+                    addDistinct(out, moved);
+                }
+            }
+            addDistinct(out, aligned);
+            return out;
+        }
+
+        private void addDistinct(List<int[]> out, int[] voicing) {
+            for (int[] v : out) {
+                if (Arrays.equals(v, voicing)) return;
+            }
+            out.add(voicing);
+        }
+
+        /** Cached transition table between two chords; entries filled on demand. */
+        private int[] table(int fromId, int toId, int p, int m) {
+            long key = ((long) fromId << 32) | (toId & 0xFFFFFFFFL);
+            int[] t = tables.get(key);
+            if (t == null) {
+                t = new int[p * m];
+                Arrays.fill(t, Integer.MIN_VALUE);
+                tables.put(key, t);
+            }
+            return t;
+        }
+
+        private int cost(int[] table, int fromId, int toId, int k, int s, int m) {
+            int cached = table[k * m + s];
+            if (cached != Integer.MIN_VALUE) return cached;
+            int[] prev = candidates.get(fromId).get(k);
+            int[] cand = candidates.get(toId).get(s);
+            int score = scorePermutation(prev, cand);
+            if (violatesHardRules(prev, cand)) score += HARD_RULE_PENALTY;
+            table[k * m + s] = score;
+            return score;
         }
-        return false;
     }
 
-    private boolean isNonCrossing(int[] chord) {
-        for (int i = 1; i < chord.length; i++) {
-            if (chord[i] < chord[i - 1]) return false;
+    private static final class IntArrayKey {
+        final int[] a;
+        IntArrayKey(int[] a) { this.a = a; }
+        @Override public int hashCode()         { return Arrays.hashCode(a); }
+        @Override public boolean equals(Object o) {
+            return o instanceof IntArrayKey && Arrays.equals(a, ((IntArrayKey) o).a);
         }
-        return true;
     }
 
-    private boolean inTessitura(int[] chord) {
-        int n = Math.min(chord.length, MIN_TESSITURA.length);
-        for (int i = 0; i < n; i++) {
-            if (chord[i] < MIN_TESSITURA[i] || chord[i] > MAX_TESSITURA[i]) return false;
+    /**
+     * Hard rules on a complete voicing: parallel fifths/octaves, voice crossing, tessitura.
+     */
+    private static boolean violatesHardRules(int[] prev, int[] cand) {
+        for (int v = 0; v < cand.length; v++) {
+            if (violatesHardRules(prev, cand, v)) return true;
         }
-        return true;
+        return false;
     }
 
     /**
-     * Soft preferences scored: movement, contrary motion, large leaps, same-pc repetition.
-     * Lower score is better.
+     * Hard rules for voice v against the voices below it, so the search can
+     * check each voice as it is placed: no crossing below voice v-1, no
+     * parallel fifths/octaves with a lower voice, and tessitura for 4-voice
+     * chords.
+     */
+    private static boolean violatesHardRules(int[] prev, int[] cand, int v) {
+        if (v > 0 && cand[v] < cand[v - 1]) return true;
+        if (v < prev.length) {
+            for (int i = 0; i < v; i++) {
+                int ip = ((prev[i] - prev[v]) % 12 + 12) % 12;
+                int ic = ((cand[i] - cand[v]) % 12 + 12) % 12;
+                if ((ip == 7 || ip == 0) && ip == ic) return true;
+            }
+        }
+        return cand.length == 4 && v < MIN_TESSITURA.length
+            && (cand[v] < MIN_TESSITURA[v] || cand[v] > MAX_TESSITURA[v]);
+    }
+
+    /**
+     * Full soft score of a complete voicing, the sum {@link Search} builds
+     * voice by voice; lower is better.
      */
     private int scorePermutation(int[] prev, int[] cand) {
         int score = 0;
+        for (int v = 0; v < cand.length; v++) {
+            score += voiceScore(prev, cand, v);
+        }
+        return score + contraryMotionPenalty(prev, cand);
+    }
+
+    /**
+     * Soft preferences scored: movement, large leaps, same-pc repetition and
+     * spacing for voice v (contrary motion is added once the soprano is placed).
+     * Lower score is better. Every term is non-negative, so the running sum over
+     * the voices placed so far is a lower bound on the full score.
+     */
+    private int voiceScore(int[] prev, int[] cand, int v) {
+        int score = 0;
 
         // Movement distance and leap penalties
-        for (int i = 0; i < prev.length; i++) {
-            int diff = Math.abs(prev[i] - cand[i]);
+        if (v < prev.length) {
+            int diff = Math.abs(prev[v] - cand[v]);
             score += diff;
             if (diff > 9) score += 6;   // penalize leaps > major sixth
             else if (diff > 7) score += 4; // penalize leaps > perfect fifth
-        }
 
-        // Prefer contrary motion between bass and soprano
-        int bassDir = Integer.compare(cand[0], prev[0]);
-        int soprDir = Integer.compare(cand[prev.length - 1], prev[prev.length - 1]);
-        if (bassDir == soprDir && bassDir != 0) {
-            score += 5;
-        }
-
-        // Penalize same pitch class repetition in the same voice when alternatives exist
-        for (int i = 0; i < prev.length; i++) {
-            if (mod12(prev[i]) == mod12(cand[i])) {
+            // Penalize same pitch class repetition in the same voice when alternatives exist
+            if (mod12(prev[v]) == mod12(cand[v])) {
                 score += 3;
             }
         }
 
         // Encourage spacing (avoid too close clustering in upper voices)
-        for (int i = 1; i < cand.length; i++) {
-            int span = cand[i] - cand[i - 1];
-            if (span < 3) score += 2; // penalize semitone-whole-tone clustering
+        if (v > 0 && cand[v] - cand[v - 1] < 3) {
+            score += 2; // penalize semitone-whole-tone clustering
         }
 
         return score;
     }
 
+    private int contraryMotionPenalty(int[] prev, int[] cand) {
+        // Prefer contrary motion between bass and soprano
+        int bassDir = Integer.compare(cand[0], prev[0]);
+        int soprDir = Integer.compare(cand[prev.length - 1], prev[prev.length - 1]);
+        return bassDir == soprDir && bassDir != 0 ? 5 : 0;
+    }
+
     private int mod12(int p) {
         int m = p % 12;
         return m < 0 ? m + 12 : m;
     }
-
-    private List<int[]> generatePermutations(int[] notes) {
-        // Ensure ascending order to start from a non-crossing base
-        int[] sorted = notes.clone();
-        Arrays.sort(sorted);
-        List<int[]> perms = new ArrayList<>();
-        permute(sorted, 0, perms);
-        // Filter duplicates if chord has repeated pitches
-        return unique(perms);
-    }
-
-    private void permute(int[] arr, int k, List<int[]> result) {
-        if (k == arr.length) {
-            result.add(arr.clone());
-        } else {
-            for (int i = k; i < arr.length; i++) {
-                swap(arr, k, i);
-                permute(arr, k + 1, result);
-                swap(arr, k, i);
-            }
-        }
-    }
-
-    private void swap(int[] arr, int i, int j) {
-        if (i == j) return;
-        int tmp = arr[i];
-        arr[i] = arr[j];
-        arr[j] = tmp;
-    }
-
-    private List<int[]> unique(List<int[]> perms) {
-        List<int[]> out = new ArrayList<>();
-        Set<String> seen = new HashSet<>();
-        for (int[] p : perms) {
-            String key = Arrays.toString(p);
-            if (!seen.contains(key)) {
-                seen.add(key);
-                out.add(p);
-            }
-        }
-        return out;
-    }
 }
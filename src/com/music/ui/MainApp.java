@@ -4,21 +4,29 @@ import com.music.arrange.Harmonizer;
 import com.music.domain.Cadence;
 import com.music.domain.Note;
 import com.music.registry.CadenceRegistry;
+import com.music.registry.TransformerRegistry;
 import com.music.service.JavaxMidiPlayer;
+import com.music.service.Meter;
+import com.music.service.MidiExporter;
+import com.music.service.MxlWriter;
 import com.music.service.ScoreRenderer;
+import com.music.service.SoundbankLoader;
+import com.music.service.SynthPool;
+import com.music.transform.Deterministic;
+import com.music.transform.StageCache;
+import com.music.transform.TransformCache;
 import com.music.transform.Transformer;
 import com.music.transform.impl.*;
 import com.music.util.KeySignatureHelper;
 
 import javax.sound.midi.Instrument;
-import javax.sound.midi.MidiSystem;
+import javax.sound.midi.MidiUnavailableException;
 import javax.sound.midi.Patch;
-import javax.sound.midi.Soundbank;
-import javax.sound.midi.Synthesizer;
 
 import javax.swing.BorderFactory;
 import javax.swing.Box;
 import javax.swing.BoxLayout;
+import javax.swing.DefaultComboBoxModel;
 import javax.swing.DefaultListCellRenderer;
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
@@ -33,10 +41,12 @@ import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
 import javax.swing.SwingConstants;
 import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.border.EmptyBorder;
 import javax.swing.event.HyperlinkEvent;
 
@@ -50,10 +60,11 @@ import java.awt.Image;
 import java.awt.Toolkit;
 import java.awt.Taskbar;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileWriter;
-import java.io.InputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 
 import java.util.Arrays;
 import java.util.ArrayList;
@@ -62,6 +73,10 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Main Swing application for generating, previewing,
@@ -69,37 +84,45 @@ import java.util.Set;
  */
 public class MainApp extends JFrame {
 
-    private final Synthesizer synth;
+    private static final int SYNTHS = 2;   // instances in the playback pool
+
+    private static final long LAUNCHED = System.nanoTime();
+
+    // set on the EDT once the SoundFont has loaded; null until then
+    private JavaxMidiPlayer player;
     private final JComboBox<String> cbCadence, cbTonic, cbT1, cbT2, cbT3;
     private final JComboBox<Instrument> cbInstr;
     private final JComboBox<Integer> cbTempo;
-    private final JButton btnApply, btnPlay, btnExport, btnExportMidi, btnReset;
+    private final JButton btnApply, btnPlay, btnStop, btnExport, btnExportMidi, btnReset;
     private final JCheckBox cbVoiceLeading;
     private final JCheckBox cbDodecafonize;
     private final JPanel[] numPanels = new JPanel[4], notePanels = new JPanel[4];
+    private final JProgressBar applyProgress;
     private final JTextArea descArea;
     private final JEditorPane htmlPane;
     private Cadence lastCadence;
     private Cadence midiCad;
 
+    // Repeated Apply clicks on the same selections are served from here
+    private final TransformCache transformCache = new TransformCache(256, 1 << 20);
+
+    // Apply runs here, one at a time, so the window never waits on a chain
+    private final ExecutorService applyExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "apply");
+        t.setDaemon(true);
+        return t;
+    });
+    private ApplyTask applyTask;   // the run whose result will be shown; EDT only
+
+    // Apply chain stages, in order. Each is reused until its selection or an
+    // earlier stage changes, so changing T3 reruns only T3 onwards.
+    private static final int RAW = 0, SEMIS = 1, SPELLED0 = 2, C1 = 3, SPELLED1 = 4, C2 = 5, SPELLED2 = 6,
+                             C3 = 7, VOICE_LEADING = 8, DODECAFONIZE = 9, SPELLED3 = 10, HTML = 11, MIDI = 12,
+                             STAGES = 13;
+    private final StageCache stages = new StageCache(STAGES);   // apply thread only
+
     private final Map<String, Transformer> transformers = new LinkedHashMap<>() {{
-        put("Identity",            new IdentityTransformer());
-        put("Add Ninth to …",      new AddNinthTransformer());
-        put("Add Seventh to …",    new AddSeventhTransformer());
-        put("Augmentation ×2",     new AugmentationTransformer());
-        put("Diminution ÷2",       new DiminutionTransformer());
-        put("Cycle",               new CycleTransformer());
-        put("Duplicate Chords",    new DuplicateChordTransformer());
-        put("Extend Progression",  new ExtendProgressionTransformer());
-        put("Inversion",           new InverterTransformer());
-        put("Major→Minor",         new MajorToMinorTransformer());
-        put("Negation",            new NegationTransformer());
-        put("Reciprocal (12–x)",   new ReciprocalTransformer());
-        put("Retrograde",          new RetrogradeTransformer());
-        put("Transpose +2",        new TransposeTransformer());
-        put("Transpose Rows⇄Cols", new TransposeMatrixTransformer());
-        put("Polynomial Derivative", new PolynomialDerivativeTransformer());
-        put("Polynomial Integral",   new PolynomialIntegralTransformer());
+        putAll(TransformerRegistry.getTransformers());
         // VoiceLeadingOptimizer is NOT included here, applied separately
         put("Modal Interchange",        new ModalInterchangeTransformer());
         put("Chromatic Mediants",       new ChromaticMediantsTransformer());
@@ -128,28 +151,16 @@ public class MainApp extends JFrame {
         setJMenuBar(menuBar);
 
         // --- Synth & SoundFont ---
-        synth = MidiSystem.getSynthesizer();
-        synth.open();
-        boolean sfLoaded = false;
-        try (InputStream sf =
-                 getClass().getResourceAsStream("/soundfonts/FluidR3_GM.sf2")) {
-            Soundbank sb = MidiSystem.getSoundbank(sf);
-            synth.loadAllInstruments(sb);
-            sfLoaded = true;
-        } catch (Exception ignore) {}
+        // opened in the background so the window comes up at once; the
+        // instrument list and Play fill in when it is done
+        Thread loader = new Thread(this::loadSynths, "soundfont-loader");
+        loader.setDaemon(true);
+        loader.start();
 
         // --- Instrument combo ---
-        Instrument[] allIns = sfLoaded
-            ? synth.getLoadedInstruments()
-            : synth.getDefaultSoundbank().getInstruments();
-        List<Instrument> insts = new ArrayList<>();
-        Set<String> seen = new HashSet<>();
-        for (Instrument ins : allIns) {
-            Patch p = ins.getPatch();
-            String key = p.getBank() + ":" + p.getProgram();
-            if (seen.add(key)) insts.add(ins);
-        }
-        cbInstr = new JComboBox<>(insts.toArray(new Instrument[0]));
+        cbInstr = new JComboBox<>();
+        cbInstr.setEnabled(false);
+        cbInstr.setToolTipText("Loading instruments…");
         cbInstr.setRenderer(new DefaultListCellRenderer() {
             @Override
             public Component getListCellRendererComponent(JList<?> l,
@@ -174,9 +185,9 @@ public class MainApp extends JFrame {
         );
         cbCadence.setSelectedIndex(0);
 
-        cbTonic = new JComboBox<>(new String[]{
-          "C","C#","D","Eb","E","F","F#","G","G#","A","Bb","B"
-        });
+        cbTonic = new JComboBox<>(
+          CadenceRegistry.getAvailableTonics().toArray(new String[0])
+        );
         cbTonic.setSelectedIndex(0);
 
         // --- Transformer selectors ---
@@ -198,9 +209,13 @@ public class MainApp extends JFrame {
         // --- Buttons & Previews ---
         btnApply  = new JButton("Apply");
         btnPlay   = new JButton("Play MIDI");
+        btnStop   = new JButton("Stop");
         btnExport = new JButton("Export XML");
         btnExportMidi = new JButton("Export MIDI");
         btnReset  = new JButton("Reset");
+        applyProgress = new JProgressBar(0, 100);
+        applyProgress.setPreferredSize(new Dimension(80, applyProgress.getPreferredSize().height));
+        applyProgress.setVisible(false);
         btnPlay.setEnabled(false);
         btnExport.setEnabled(false);
         btnExportMidi.setEnabled(false);
@@ -230,96 +245,54 @@ public class MainApp extends JFrame {
             btnExport.setEnabled(false);
             btnExportMidi.setEnabled(false);
         };
-        cbCadence.addActionListener(e -> disable.run());
-        cbTonic  .addActionListener(e -> disable.run());
-        cbT1     .addActionListener(e -> disable.run());
-        cbT2     .addActionListener(e -> disable.run());
-        cbT3     .addActionListener(e -> disable.run());
-        cbInstr  .addActionListener(e -> disable.run());
-        cbTempo  .addActionListener(e -> disable.run());
+        // a change to anything Apply reads also drops the run in flight
+        Runnable changed = () -> {
+            cancelApply();
+            disable.run();
+        };
+        cbCadence.addActionListener(e -> changed.run());
+        cbTonic  .addActionListener(e -> changed.run());
+        cbT1     .addActionListener(e -> changed.run());
+        cbT2     .addActionListener(e -> changed.run());
+        cbT3     .addActionListener(e -> changed.run());
+        cbVoiceLeading.addItemListener(e -> changed.run());
+        cbDodecafonize.addItemListener(e -> changed.run());
 
         // --- APPLY action ---
+        // an input change cancels the run in flight, so one still going is
+        // already computing these inputs and a repeated click is dropped
         btnApply.addActionListener(e -> {
-            String cadName = (String) cbCadence.getSelectedItem();
-            String tonic   = (String) cbTonic.getSelectedItem();
-
-            // 1) Raw offsets
-            Cadence raw = CadenceRegistry.getCadence(cadName);
-
-            // 2) Semitone shift
-            Cadence semis = new TransposeToTonicTransformer(tonic).transform(raw);
-
-            // 3) Chain other transforms (T1, T2, T3)
-            Cadence c1 = transformers.get(cbT1.getSelectedItem()).transform(semis);
-            Cadence c2 = transformers.get(cbT2.getSelectedItem()).transform(c1);
-            Cadence c3 = transformers.get(cbT3.getSelectedItem()).transform(c2);
-
-            // Preserve the description of T3 BEFORE post-processors
-            String descT3 = c3.description();
-
-            // 4) Post-processors applied only at the end (do NOT affect line 3 description)
-            Cadence cFinal = c3;
-            StringBuilder desc = new StringBuilder();
-            desc.append("1) ").append(cbT1.getSelectedItem()).append(": ").append(c1.description()).append("\n");
-            desc.append("2) ").append(cbT2.getSelectedItem()).append(": ").append(c2.description()).append("\n");
-            desc.append("3) ").append(cbT3.getSelectedItem()).append(": ").append(descT3);
-
-            if (cbVoiceLeading.isSelected()) {
-                cFinal = new VoiceLeadingOptimizerTransformer().transform(cFinal);
-                desc.append("\n+ Voice Leading Optimization applied");
-            }
-
-            if (cbDodecafonize.isSelected()) {
-                cFinal = new DodecafonizeTransformer().transform(cFinal);
-                desc.append("\n+ Dodecafonize applied");
-            }
-
-            lastCadence = cFinal;
-
-            // 5) Numeric grids
-            showGrid(numPanels[0], semis.intervals());
-            showGrid(numPanels[1], c1.intervals());
-            showGrid(numPanels[2], c2.intervals());
-            showGrid(numPanels[3], cFinal.intervals());
-
-            // 6) Spelled-note grids for display
-            Note[][] spelled0 = KeySignatureHelper.computeMatrix(semis.intervals(), tonic);
-            Note[][] spelled1 = KeySignatureHelper.computeMatrix(c1.intervals(),    tonic);
-            Note[][] spelled2 = KeySignatureHelper.computeMatrix(c2.intervals(),    tonic);
-            Note[][] spelled3 = KeySignatureHelper.computeMatrix(cFinal.intervals(),tonic);
-
-            showGrid(notePanels[0], spelled0);
-            showGrid(notePanels[1], spelled1);
-            showGrid(notePanels[2], spelled2);
-            showGrid(notePanels[3], spelled3);
-
-            // 7) Descriptions
-            descArea.setText(desc.toString());
-
-            // 8) HTML preview without octave (final)
-            htmlPane.setText(buildNoteTableHtml(spelled3));
-
-            // 9) Prepare MIDI playback
-            midiCad = new Harmonizer().transform(cFinal);
-            btnPlay .setEnabled(true);
-            btnExport.setEnabled(true);
-            btnExportMidi.setEnabled(true);
+            if (applyTask != null) return;
+            ApplyTask task = new ApplyTask();
+            task.addPropertyChangeListener(ev -> {
+                if ("progress".equals(ev.getPropertyName()) && task == applyTask) {
+                    applyProgress.setValue((Integer) ev.getNewValue());
+                }
+            });
+            applyTask = task;
+            applyProgress.setValue(0);
+            applyProgress.setVisible(true);
+            applyExecutor.execute(task);
         });
 
         // --- PLAY action ---
         btnPlay.addActionListener(e -> {
-            Instrument ins = (Instrument) cbInstr.getSelectedItem();
-            Patch p        = ins.getPatch();
+            Patch p        = selectedPatch();
             int bank       = p.getBank(), prog = p.getProgram();
             int bpm        = (Integer) cbTempo.getSelectedItem();
 
-            new Thread(() -> {
-                try {
-                    JavaxMidiPlayer.play(midiCad, synth, bank, prog, bpm);
-                } catch (InterruptedException ex) {
-                    Thread.currentThread().interrupt();
-                }
-            }).start();
+            // never wait for a channel here: that would freeze the window
+            if (player.tryPlay(midiCad, bank, prog, bpm) == null) {
+                JOptionPane.showMessageDialog(
+                    this,
+                    "Every synthesizer channel is playing.\nStop a playback and try again.",
+                    "Synthesizer Busy",
+                    JOptionPane.INFORMATION_MESSAGE
+                );
+            }
+        });
+        btnStop.addActionListener(e -> {
+            if (player != null) player.stopAll();
         });
 
         // --- EXPORT XML action ---
@@ -332,10 +305,14 @@ public class MainApp extends JFrame {
             fc.setSelectedFile(new File(filename));
 
             if (fc.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
-                try (FileWriter w = new FileWriter(fc.getSelectedFile())) {
+                try (OutputStream os = new FileOutputStream(fc.getSelectedFile())) {
                     int bpm = (Integer) cbTempo.getSelectedItem();
                     System.out.println(">>> Exporting grid: " + Arrays.deepToString(midiCad.intervals()));
-                    w.write( ScoreRenderer.toMusicXMLFromMidi(midiCad, bpm) );
+                    if (fc.getSelectedFile().getName().toLowerCase().endsWith(".mxl")) {
+                        MxlWriter.write(midiCad, bpm, Meter.COMMON, os);
+                    } else {
+                        ScoreRenderer.writeMusicXMLFromMidi(midiCad, bpm, os);
+                    }
                 } catch (IOException ex) {
                     ex.printStackTrace();
                     JOptionPane.showMessageDialog(
@@ -358,8 +335,10 @@ public class MainApp extends JFrame {
             fc.setSelectedFile(new File(filename));
 
             if (fc.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
-                try {
-                    int bpm = (Integer) cbTempo.getSelectedItem();
+                try (OutputStream os = new BufferedOutputStream(new FileOutputStream(fc.getSelectedFile()))) {
+                    int bpm   = (Integer) cbTempo.getSelectedItem();
+                    Patch p   = selectedPatch();
+                    MidiExporter.write(midiCad, bpm, p.getBank(), p.getProgram(), os);
                 } catch (Exception ex) {
                     ex.printStackTrace();
                     JOptionPane.showMessageDialog(
@@ -374,6 +353,8 @@ public class MainApp extends JFrame {
 
         // --- RESET action ---
         btnReset.addActionListener(e -> {
+            cancelApply();
+            if (player != null) player.stopAll();
             cbCadence.setSelectedIndex(0);
             cbTonic  .setSelectedIndex(0);
             cbT1     .setSelectedItem("Identity");
@@ -404,7 +385,7 @@ public class MainApp extends JFrame {
         controls2.add(new JLabel("T3:")); controls2.add(cbT3);
         controls2.add(cbVoiceLeading);
         controls2.add(cbDodecafonize);
-        controls2.add(btnApply); controls2.add(btnPlay);
+        controls2.add(btnApply); controls2.add(applyProgress); controls2.add(btnPlay); controls2.add(btnStop);
         controls2.add(btnExport); controls2.add(btnExportMidi);
         controls2.add(btnReset);
 
@@ -449,6 +430,225 @@ public class MainApp extends JFrame {
         setDefaultCloseOperation(EXIT_ON_CLOSE);
     }
 
+    /**
+     * Drops the Apply run in flight; it stops at its next stage and its
+     * result is never shown.
+     */
+    private void cancelApply() {
+        ApplyTask task = applyTask;
+        applyTask = null;
+        applyProgress.setVisible(false);
+        if (task != null) task.cancel(false);
+    }
+
+    /**
+     * What a T1-T3 stage is reused on: the transformer's name, or a fresh
+     * key for one that is not {@link Deterministic}, so it reruns every time.
+     */
+    private Object stageKey(String transformer) {
+        return transformers.get(transformer) instanceof Deterministic ? transformer : new Object();
+    }
+
+    /**
+     * Publishes a finished Apply run to the window.
+     */
+    private void show(Applied a) {
+        lastCadence = a.cFinal;
+
+        // 5) Numeric grids
+        showGrid(numPanels[0], a.semis.intervals());
+        showGrid(numPanels[1], a.c1.intervals());
+        showGrid(numPanels[2], a.c2.intervals());
+        showGrid(numPanels[3], a.cFinal.intervals());
+
+        // 6) Spelled-note grids for display
+        for (int i = 0; i < 4; i++) showGrid(notePanels[i], a.spelled[i]);
+
+        // 7) Descriptions
+        descArea.setText(a.desc);
+
+        // 8) HTML preview without octave (final)
+        htmlPane.setText(a.html);
+
+        // 9) Prepare MIDI playback
+        midiCad = a.midiCad;
+        btnPlay .setEnabled(player != null);
+        btnExport.setEnabled(true);
+        btnExportMidi.setEnabled(true);
+    }
+
+    /**
+     * Everything one Apply run computes for the window.
+     */
+    private static final class Applied {
+        Cadence semis, c1, c2, cFinal, midiCad;
+        Note[][][] spelled = new Note[4][][];
+        String desc, html;
+    }
+
+    /**
+     * One Apply run. The selections are read on the EDT when it is created;
+     * the chain runs on {@link #applyExecutor}, reusing from {@link #stages}
+     * every stage upstream of the first changed selection and checking for
+     * cancellation between stages. Only {@link #done()} touches the window.
+     */
+    private final class ApplyTask extends SwingWorker<Applied, Void> {
+
+        private final String  cadName = (String) cbCadence.getSelectedItem();
+        private final String  tonic   = (String) cbTonic.getSelectedItem();
+        private final String  t1      = (String) cbT1.getSelectedItem();
+        private final String  t2      = (String) cbT2.getSelectedItem();
+        private final String  t3      = (String) cbT3.getSelectedItem();
+        private final boolean voiceLeading = cbVoiceLeading.isSelected();
+        private final boolean dodecafonize = cbDodecafonize.isSelected();
+
+        @Override
+        protected Applied doInBackground() {
+            Applied a = new Applied();
+
+            // 1) Raw offsets
+            Cadence raw = stages.get(RAW, cadName, () -> CadenceRegistry.getCadence(cadName));
+            progress(RAW);
+
+            // 2) Semitone shift
+            a.semis = stages.get(SEMIS, tonic,
+                () -> transformCache.transform(new TransposeToTonicTransformer(tonic), raw));
+            progress(SEMIS);
+            a.spelled[0] = stages.get(SPELLED0, null,
+                () -> KeySignatureHelper.computeMatrix(a.semis.intervals(), tonic));
+            progress(SPELLED0);
+
+            // 3) Chain other transforms (T1, T2, T3)
+            a.c1 = stages.get(C1, stageKey(t1), () -> transformCache.transform(transformers.get(t1), a.semis));
+            progress(C1);
+            a.spelled[1] = stages.get(SPELLED1, null,
+                () -> KeySignatureHelper.computeMatrix(a.c1.intervals(), tonic));
+            progress(SPELLED1);
+            a.c2 = stages.get(C2, stageKey(t2), () -> transformCache.transform(transformers.get(t2), a.c1));
+            progress(C2);
+            a.spelled[2] = stages.get(SPELLED2, null,
+                () -> KeySignatureHelper.computeMatrix(a.c2.intervals(), tonic));
+            progress(SPELLED2);
+            Cadence c3 = stages.get(C3, stageKey(t3), () -> transformCache.transform(transformers.get(t3), a.c2));
+            progress(C3);
+
+            // Preserve the description of T3 BEFORE post-processors
+            String descT3 = c3.description();
+
+            // 4) Post-processors applied only at the end (do NOT affect line 3 description)
+            StringBuilder desc = new StringBuilder();
+            desc.append("1) ").append(t1).append(": ").append(a.c1.description()).append("\n");
+            desc.append("2) ").append(t2).append(": ").append(a.c2.description()).append("\n");
+            desc.append("3) ").append(t3).append(": ").append(descT3);
+
+            Cadence voiced = stages.get(VOICE_LEADING, voiceLeading, () -> voiceLeading
+                ? transformCache.transform(new VoiceLeadingOptimizerTransformer(), c3) : c3);
+            if (voiceLeading) desc.append("\n+ Voice Leading Optimization applied");
+            progress(VOICE_LEADING);
+
+            a.cFinal = stages.get(DODECAFONIZE, dodecafonize, () -> dodecafonize
+                ? transformCache.transform(new DodecafonizeTransformer(), voiced) : voiced);
+            if (dodecafonize) desc.append("\n+ Dodecafonize applied");
+            progress(DODECAFONIZE);
+            a.desc = desc.toString();
+
+            // Final spelled-note grid and HTML preview
+            a.spelled[3] = stages.get(SPELLED3, null,
+                () -> KeySignatureHelper.computeMatrix(a.cFinal.intervals(), tonic));
+            progress(SPELLED3);
+            a.html = stages.get(HTML, null, () -> buildNoteTableHtml(a.spelled[3]));
+            progress(HTML);
+
+            // the harmonizer breaks ties at random, so each Apply voices afresh
+            a.midiCad = stages.get(MIDI, new Object(), () -> new Harmonizer().transform(a.cFinal));
+            progress(MIDI);
+            return a;
+        }
+
+        /** Reports {@code stage} as finished, or stops if cancelled. */
+        private void progress(int stage) {
+            if (isCancelled()) throw new CancellationException();
+            setProgress((stage + 1) * 100 / STAGES);
+        }
+
+        @Override
+        protected void done() {
+            if (this != applyTask) return;   // cancelled or superseded
+            applyTask = null;
+            applyProgress.setVisible(false);
+            try {
+                show(get());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ex) {
+                ex.getCause().printStackTrace();
+                JOptionPane.showMessageDialog(
+                    MainApp.this,
+                    "Error applying transforms:\n" + ex.getCause().getMessage(),
+                    "Apply Failed",
+                    JOptionPane.ERROR_MESSAGE
+                );
+            }
+        }
+    }
+
+    /**
+     * Opens the SoundFont and the playback pool off the EDT, then hands them
+     * over on it. Instruments themselves load per patch when first played.
+     */
+    private void loadSynths() {
+        long start = System.nanoTime();
+        try {
+            SynthPool pool = SynthPool.realtime(SYNTHS, SoundbankLoader.bundled());
+            Instrument[] all = pool.instruments();
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            SwingUtilities.invokeLater(() -> synthsReady(pool, all, millis));
+        } catch (MidiUnavailableException | RuntimeException ex) {
+            ex.printStackTrace();
+            SwingUtilities.invokeLater(() -> {
+                btnPlay.setToolTipText("No synthesizer: " + ex.getMessage());
+                cbInstr.setToolTipText(btnPlay.getToolTipText());
+            });
+        }
+    }
+
+    /**
+     * Fills the instrument combo (one entry per bank/program) and enables
+     * Play if a cadence is already prepared.
+     */
+    private void synthsReady(SynthPool pool, Instrument[] all, long loadMillis) {
+        player = new JavaxMidiPlayer(pool);
+
+        List<Instrument> insts = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (Instrument ins : all) {
+            Patch p = ins.getPatch();
+            String key = p.getBank() + ":" + p.getProgram();
+            if (seen.add(key)) insts.add(ins);
+        }
+        // a new model fires no action event, so a prepared cadence stays playable
+        cbInstr.setModel(new DefaultComboBoxModel<>(insts.toArray(new Instrument[0])));
+        cbInstr.setEnabled(true);
+        cbInstr.setToolTipText(null);
+        btnPlay.setEnabled(btnExport.isEnabled());
+
+        System.out.printf(">>> SoundFont loaded in %d ms, %d instruments ready %d ms after launch%n",
+                          loadMillis, insts.size(), sinceLaunch());
+    }
+
+    /**
+     * The chosen instrument's patch, or bank 0 / program 0 (piano) while
+     * instruments are still loading.
+     */
+    private Patch selectedPatch() {
+        Instrument ins = (Instrument) cbInstr.getSelectedItem();
+        return ins != null ? ins.getPatch() : new Patch(0, 0);
+    }
+
+    private static long sinceLaunch() {
+        return (System.nanoTime() - LAUNCHED) / 1_000_000;
+    }
+
     /**
      * Display an int[][] grid in the given panel.
      */
@@ -555,7 +755,10 @@ public class MainApp extends JFrame {
      */
     public static void main(String[] args) {
         SwingUtilities.invokeLater(() -> {
-            try { new MainApp().setVisible(true); }
+            try {
+                new MainApp().setVisible(true);
+                System.out.printf(">>> Window shown %d ms after launch%n", sinceLaunch());
+            }
             catch (Exception e) { e.printStackTrace(); }
         });
     }